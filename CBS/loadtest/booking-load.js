@@ -0,0 +1,84 @@
+// k6 scenario comparing platform-thread and virtual-thread request handling.
+//
+//   k6 run -e MODE=platform loadtest/booking-load.js          (app started normally)
+//   k6 run -e MODE=virtual  loadtest/booking-load.js          (app started with --spring.profiles.active=virtual-threads)
+//
+// Optional: -e BASE_URL=http://localhost:8081 -e RATE=2000 -e VUS=3000 -e DURATION=2m
+// Each run writes loadtest/results/<MODE>.json and prints throughput and latency percentiles.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8081';
+const MODE = __ENV.MODE || 'platform';
+const RATE = parseInt(__ENV.RATE || '2000');
+const VUS = parseInt(__ENV.VUS || '3000');
+const DURATION = __ENV.DURATION || '2m';
+
+export const options = {
+    scenarios: {
+        // Open model: requests keep arriving at RATE/s whether or not the server keeps up,
+        // so queueing inside the server shows up as latency instead of being hidden by slow VUs
+        mixed: {
+            executor: 'constant-arrival-rate',
+            rate: RATE,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: VUS,
+            maxVUs: VUS,
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(90)', 'p(99)', 'max'],
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+// Demo users created by CbsApplication on startup
+function login(username, password) {
+    const res = http.post(`${BASE_URL}/api/auth/login`, JSON.stringify({ username, password }),
+        { headers: { 'Content-Type': 'application/json' } });
+    check(res, { 'login ok': (r) => r.status === 200 });
+    return res.json('token');
+}
+
+const trip = {
+    pickupLocation: { latitude: 19.0760, longitude: 72.8777, address: 'Mumbai CST' },
+    dropoffLocation: { latitude: 19.1136, longitude: 72.8697, address: 'Andheri' },
+    preferredCabType: 'SEDAN',
+};
+
+export function setup() {
+    const riderToken = login('rider1', 'riderpass');
+    const headers = { Authorization: `Bearer ${riderToken}`, 'Content-Type': 'application/json' };
+    const booking = http.post(`${BASE_URL}/api/bookings/request-ride`, JSON.stringify(trip), { headers });
+    check(booking, { 'booking created': (r) => r.status === 201 });
+    return { riderToken, bookingId: booking.json('id') };
+}
+
+// Mostly JDBC-bound reads, the workload where blocking threads matter most
+export default function (data) {
+    const headers = { Authorization: `Bearer ${data.riderToken}`, 'Content-Type': 'application/json' };
+    const pick = Math.random();
+    let res;
+    if (pick < 0.4) {
+        res = http.get(`${BASE_URL}/api/bookings/${data.bookingId}`, { headers, tags: { name: 'details' } });
+    } else if (pick < 0.7) {
+        res = http.get(`${BASE_URL}/api/bookings/history?size=20`, { headers, tags: { name: 'history' } });
+    } else if (pick < 0.9) {
+        res = http.get(`${BASE_URL}/api/bookings/${data.bookingId}/events`, { headers, tags: { name: 'events' } });
+    } else {
+        res = http.post(`${BASE_URL}/api/bookings/quote`, JSON.stringify(trip), { headers, tags: { name: 'quote' } });
+    }
+    check(res, { 'status 200': (r) => r.status === 200 });
+}
+
+export function handleSummary(data) {
+    const duration = data.metrics.http_req_duration.values;
+    const line = `[${MODE}] ${data.metrics.http_reqs.values.rate.toFixed(0)} req/s, ` +
+        `p50 ${duration['p(50)'].toFixed(1)} ms, p99 ${duration['p(99)'].toFixed(1)} ms, ` +
+        `failed ${(data.metrics.http_req_failed.values.rate * 100).toFixed(2)}%\n`;
+    return {
+        stdout: line,
+        [`loadtest/results/${MODE}.json`]: JSON.stringify(data, null, 2),
+    };
+}
@@ -0,0 +1,98 @@
+//Ranking one pickup against N candidates: the previous per-pair Haversine versus the bulk DistanceKernel.
+package com.example.CBS.benchmark;
+
+import com.example.CBS.geo.DistanceKernel;
+import com.example.CBS.geo.GeoUtils;
+import com.example.CBS.model.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceKernelBenchmark {
+
+    private static final int PICKUPS = 256;
+    private static final double RADIUS_KM = 10.0;
+
+    @Param({"1000", "10000"})
+    public int candidates;
+
+    private Location[] pickups;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] cosLatitudes;
+    private double[] distancesKm;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        pickups = new Location[PICKUPS];
+        for (int i = 0; i < PICKUPS; i++) {
+            pickups[i] = SyntheticFleet.randomLocation(random);
+        }
+        latitudes = new double[candidates];
+        longitudes = new double[candidates];
+        cosLatitudes = new double[candidates];
+        distancesKm = new double[candidates];
+        for (int i = 0; i < candidates; i++) {
+            Location location = SyntheticFleet.randomLocation(random);
+            latitudes[i] = location.getLatitude();
+            longitudes[i] = location.getLongitude();
+            cosLatitudes[i] = DistanceKernel.cosLatitude(latitudes[i]);
+        }
+    }
+
+    // The Haversine as it was before the kernel: toRadians, cos of both latitudes and atan2 for every pair
+    @Benchmark
+    public int legacyHaversine() {
+        Location pickup = pickups[cursor++ & (PICKUPS - 1)];
+        int within = 0;
+        for (int i = 0; i < candidates; i++) {
+            if (legacyDistanceKm(pickup.getLatitude(), pickup.getLongitude(), latitudes[i], longitudes[i]) <= RADIUS_KM) {
+                within++;
+            }
+        }
+        return within;
+    }
+
+    // Precomputed cos(latitude), still exact Haversine for every candidate
+    @Benchmark
+    public int precomputedHaversine() {
+        Location pickup = pickups[cursor++ & (PICKUPS - 1)];
+        double cosLat = DistanceKernel.cosLatitude(pickup.getLatitude());
+        int within = 0;
+        for (int i = 0; i < candidates; i++) {
+            if (DistanceKernel.haversineKm(pickup.getLatitude(), pickup.getLongitude(), cosLat,
+                    latitudes[i], longitudes[i], cosLatitudes[i]) <= RADIUS_KM) {
+                within++;
+            }
+        }
+        return within;
+    }
+
+    // What matching runs: equirectangular pre-filter, exact Haversine only for the survivors
+    @Benchmark
+    public int kernel() {
+        Location pickup = pickups[cursor++ & (PICKUPS - 1)];
+        return DistanceKernel.distancesWithin(pickup.getLatitude(), pickup.getLongitude(),
+                DistanceKernel.cosLatitude(pickup.getLatitude()), latitudes, longitudes, cosLatitudes, candidates,
+                RADIUS_KM, distancesKm);
+    }
+
+    private static double legacyDistanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return GeoUtils.EARTH_RADIUS_KM * c;
+    }
+}
@@ -0,0 +1,74 @@
+//Driver selection for one ride request: the old full-scan stream versus the spatial index, per fleet size.
+package com.example.CBS.benchmark;
+
+import com.example.CBS.geo.DriverSpatialIndex;
+import com.example.CBS.geo.GeoUtils;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Driver;
+import com.example.CBS.model.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverMatchingBenchmark {
+
+    private static final int PICKUPS = 256;
+
+    @Param({"1000", "10000", "100000"})
+    public int fleetSize;
+
+    private List<Driver> fleet;
+    private DriverSpatialIndex index;
+    private Location[] pickups;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = SyntheticFleet.entities(fleetSize, 7);
+        index = SyntheticFleet.index(fleet, 0.01);
+        SplittableRandom random = new SplittableRandom(11);
+        pickups = new Location[PICKUPS];
+        for (int i = 0; i < PICKUPS; i++) {
+            pickups[i] = SyntheticFleet.randomLocation(random);
+        }
+    }
+
+    // The original requestRide filter: first available driver of the type, regardless of distance
+    @Benchmark
+    public Optional<Driver> legacyFirstMatch() {
+        return fleet.stream()
+                .filter(Driver::getIsAvailable)
+                .filter(driver -> driver.getCab() != null && driver.getCab().getCabType() == Cab.CabType.SEDAN && driver.getCab().getIsActive())
+                .findFirst();
+    }
+
+    // What a full scan costs when it has to pick the nearest driver, as the index does
+    @Benchmark
+    public Optional<Driver> linearScanNearest(Cursor cursor) {
+        Location pickup = pickups[cursor.next++ & (PICKUPS - 1)];
+        return fleet.stream()
+                .filter(Driver::getIsAvailable)
+                .filter(driver -> driver.getCab() != null && driver.getCab().getCabType() == Cab.CabType.SEDAN && driver.getCab().getIsActive())
+                .min(Comparator.comparingDouble(driver -> GeoUtils.distanceKm(pickup, driver.getCurrentLocation())));
+    }
+
+    @Benchmark
+    public List<DriverSpatialIndex.Candidate> spatialIndexNearest(Cursor cursor) {
+        Location pickup = pickups[cursor.next++ & (PICKUPS - 1)];
+        return index.findNearest(pickup.getLatitude(), pickup.getLongitude(), Cab.CabType.SEDAN, 10, 10);
+    }
+}
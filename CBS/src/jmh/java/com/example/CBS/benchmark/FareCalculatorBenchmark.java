@@ -0,0 +1,58 @@
+//Per-request fare estimate cost; run with -prof gc: the cents path should report ~0 B/op.
+package com.example.CBS.benchmark;
+
+import com.example.CBS.geo.DriverSpatialIndex;
+import com.example.CBS.geo.FleetStateStore;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Location;
+import com.example.CBS.pricing.FareCalculator;
+import com.example.CBS.pricing.SurgePricingEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareCalculatorBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"SEDAN", "LUXURY"})
+    public Cab.CabType cabType;
+
+    private FareCalculator fareCalculator;
+    private Location[] pickups;
+    private Location[] dropoffs;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        fareCalculator = new FareCalculator(new SurgePricingEngine(new DriverSpatialIndex(null, new FleetStateStore(16), 0.01))); // Surge disabled
+        SplittableRandom random = new SplittableRandom(42);
+        pickups = new Location[POINTS];
+        dropoffs = new Location[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            pickups[i] = SyntheticFleet.randomLocation(random);
+            dropoffs[i] = SyntheticFleet.randomLocation(random);
+        }
+    }
+
+    @Benchmark
+    public long estimateFareCents() {
+        int i = cursor++ & (POINTS - 1);
+        return fareCalculator.estimateFareCents(pickups[i], dropoffs[i], cabType);
+    }
+
+    // Same fare converted at the boundary: the one BigDecimal an entity or response needs
+    @Benchmark
+    public BigDecimal estimateFare() {
+        int i = cursor++ & (POINTS - 1);
+        return fareCalculator.estimateFare(pickups[i], dropoffs[i], cabType);
+    }
+}
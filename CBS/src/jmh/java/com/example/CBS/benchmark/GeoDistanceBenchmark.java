@@ -0,0 +1,41 @@
+//Scalar Haversine cost per call (the distance used by fare estimation and matching).
+package com.example.CBS.benchmark;
+
+import com.example.CBS.geo.GeoUtils;
+import com.example.CBS.model.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoDistanceBenchmark {
+
+    private static final int POINTS = 1024;
+
+    private Location[] pickups;
+    private Location[] dropoffs;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        pickups = new Location[POINTS];
+        dropoffs = new Location[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            pickups[i] = SyntheticFleet.randomLocation(random);
+            dropoffs[i] = SyntheticFleet.randomLocation(random);
+        }
+    }
+
+    @Benchmark
+    public double haversine() {
+        int i = cursor++ & (POINTS - 1);
+        return GeoUtils.distanceKm(pickups[i], dropoffs[i]);
+    }
+}
@@ -0,0 +1,65 @@
+//Cost of authenticating one request the way AuthTokenFilter does it.
+package com.example.CBS.benchmark;
+
+import com.example.CBS.security.jwt.JwtClaims;
+import com.example.CBS.security.jwt.JwtUtils;
+import com.example.CBS.security.services.UserDetailsImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    // 0 disables the verified-token cache, so every call pays for the full HMAC verification
+    @Param({"0", "10000"})
+    public int verifiedCacheSize;
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "benchmarkSecretKeyThatIsAtLeast256BitsLongForHmacSha256Signing");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", verifiedCacheSize);
+        jwtUtils.init();
+
+        UserDetailsImpl principal = new UserDetailsImpl(1L, "rider1", "rider1@example.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_RIDER")));
+        token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return jwtUtils.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public String getUserName() {
+        return jwtUtils.getUserNameFromJwtToken(token);
+    }
+
+    // validateJwtToken + getUserNameFromJwtToken, the pair AuthTokenFilter used to run per request
+    @Benchmark
+    public String validateThenGetUserName() {
+        return jwtUtils.validateJwtToken(token) ? jwtUtils.getUserNameFromJwtToken(token) : null;
+    }
+
+    // Single verification pass returning typed claims, as AuthTokenFilter runs it now
+    @Benchmark
+    public Optional<JwtClaims> verify() {
+        return jwtUtils.verifyJwtToken(token);
+    }
+}
@@ -0,0 +1,61 @@
+//Builds reproducible synthetic fleets around a city centre for the matching benchmarks.
+package com.example.CBS.benchmark;
+
+import com.example.CBS.geo.DriverSpatialIndex;
+import com.example.CBS.geo.FleetStateStore;
+import com.example.CBS.geo.IndexedDriver;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Driver;
+import com.example.CBS.model.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+final class SyntheticFleet {
+
+    static final double CENTER_LAT = 19.0760; // Mumbai
+    static final double CENTER_LON = 72.8777;
+    static final double SPREAD_DEG = 0.25; // Roughly +/- 27 km
+
+    private static final Cab.CabType[] TYPES = Cab.CabType.values();
+
+    private SyntheticFleet() {
+    }
+
+    // Full entity graphs, as requestRide saw them when it scanned findByIsAvailableTrue()
+    static List<Driver> entities(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Driver> drivers = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            Location location = randomLocation(random);
+            Driver driver = new Driver("driver" + id, "pw", "driver" + id + "@example.com", "First", "Last", "DL" + id);
+            driver.setId(id);
+            driver.setIsAvailable(random.nextInt(10) < 7); // ~70% online
+            driver.setCurrentLocation(location);
+
+            Cab cab = new Cab(id, "PLATE" + id, "Make", "Model", TYPES[random.nextInt(TYPES.length)], 4, driver, location, true);
+            driver.setCab(cab);
+            drivers.add(driver);
+        }
+        return drivers;
+    }
+
+    static DriverSpatialIndex index(List<Driver> drivers, double cellSizeDeg) {
+        DriverSpatialIndex index = new DriverSpatialIndex(null, new FleetStateStore(drivers.size()), cellSizeDeg);
+        for (Driver driver : drivers) {
+            Cab cab = driver.getCab();
+            index.upsert(new IndexedDriver(driver.getId(), cab.getId(), cab.getCabType(),
+                    driver.getCurrentLocation().getLatitude(), driver.getCurrentLocation().getLongitude(),
+                    driver.getIsAvailable(), cab.getIsActive(), cab.getCapacity(), driver.getRating()));
+        }
+        return index;
+    }
+
+    static Location randomLocation(SplittableRandom random) {
+        return new Location(
+                CENTER_LAT + (random.nextDouble() * 2 - 1) * SPREAD_DEG,
+                CENTER_LON + (random.nextDouble() * 2 - 1) * SPREAD_DEG,
+                "synthetic");
+    }
+}
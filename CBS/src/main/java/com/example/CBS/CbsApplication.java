@@ -21,11 +21,14 @@ import com.example.CBS.repository.RiderRepository;
 import com.example.CBS.repository.RoleRepository;
 
 import com.example.CBS.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.HashSet;
@@ -33,8 +36,11 @@ import java.util.Set;
 
 @SpringBootApplication
 @EnableJpaAuditing // Enable JPA Auditing for createdAt and updatedAt fields
+@EnableScheduling // Background jobs such as the driver location flush
 public class CbsApplication {
 
+	private static final Logger logger = LoggerFactory.getLogger(CbsApplication.class);
+
 	public static void main(String[] args) {
 		SpringApplication.run(CbsApplication.class, args);
 	}
@@ -66,7 +72,7 @@ public class CbsApplication {
 				adminRoles.add(adminRole);
 				admin.setRoles(adminRoles);
 				userRepository.save(admin);
-				System.out.println("Created admin user: admin/adminpass");
+				logger.info("Created admin user: admin/adminpass");
 			}
 
 			// Create a sample Rider if not exists
@@ -76,7 +82,7 @@ public class CbsApplication {
 				riderRoles.add(riderRole);
 				rider.setRoles(riderRoles);
 				riderRepository.save(rider);
-				System.out.println("Created rider user: rider1/riderpass");
+				logger.info("Created rider user: rider1/riderpass");
 			}
 
 			// Create a sample Driver and his Cab if not exists
@@ -95,7 +101,7 @@ public class CbsApplication {
 				driver.setCab(cab); // Set the cab for the driver
 				driverRepository.save(driver); // Update driver with cab association
 
-				System.out.println("Created driver user: driver1/driverpass with cab");
+				logger.info("Created driver user: driver1/driverpass with cab");
 			}
 		};
 	}
@@ -3,7 +3,12 @@ package com.example.CBS.config;
 import com.example.CBS.security.jwt.AuthEntryPointJwt;
 import com.example.CBS.security.jwt.AuthTokenFilter;
 import com.example.CBS.security.jwt.JwtUtils;
+import com.example.CBS.security.services.JwtPrincipalResolver;
 import com.example.CBS.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -25,17 +30,28 @@ public class SecurityConfig {
     private final UserDetailsServiceImpl userDetailsService;
     private final AuthEntryPointJwt unauthorizedHandler;
     private final JwtUtils jwtUtils;
+    private final JwtPrincipalResolver principalResolver;
+    private final MeterRegistry meterRegistry;
+    private final int managementPort;
 
-    public SecurityConfig(UserDetailsServiceImpl userDetailsService, AuthEntryPointJwt unauthorizedHandler, JwtUtils jwtUtils) {
+    public SecurityConfig(UserDetailsServiceImpl userDetailsService,
+                          AuthEntryPointJwt unauthorizedHandler,
+                          JwtUtils jwtUtils,
+                          JwtPrincipalResolver principalResolver,
+                          MeterRegistry meterRegistry,
+                          @Value("${management.server.port:-1}") int managementPort) {
         this.userDetailsService = userDetailsService;
         this.unauthorizedHandler = unauthorizedHandler;
         this.jwtUtils = jwtUtils;
+        this.principalResolver = principalResolver;
+        this.meterRegistry = meterRegistry;
+        this.managementPort = managementPort;
     }
 
     // JWT Authentication Filter
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
-        return new AuthTokenFilter(jwtUtils, userDetailsService);
+        return new AuthTokenFilter(jwtUtils, principalResolver, meterRegistry);
     }
 
     // Authentication Provider
@@ -66,8 +82,12 @@ public class SecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler)) // Handle auth exceptions
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // Stateless sessions for REST APIs
                 .authorizeHttpRequests(authorize -> authorize
+                        // Re-dispatch of an already authorized streaming response (exports); the JWT filter doesn't run again
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll() // Allow public access to auth endpoints
                         .requestMatchers("/api/payments/callback").permitAll() // Allow public access for payment callbacks/webhooks
+                        // Liveness probes and the Prometheus scraper carry no token; only on the internal management port
+                        .requestMatchers(this::isUnauthenticatedActuatorRequest).permitAll()
                         // You can add more public endpoints here if needed
                         .anyRequest().authenticated() // All other requests require authentication
                 );
@@ -79,4 +99,13 @@ public class SecurityConfig {
 
         return http.build();
     }
+
+    // --- Private Helper Methods ---
+
+    // Never matches on the public port, even if management.server.port is removed and actuator moves onto it
+    private boolean isUnauthenticatedActuatorRequest(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return request.getLocalPort() == managementPort
+                && ("/actuator/health".equals(path) || "/actuator/prometheus".equals(path));
+    }
 }
@@ -2,34 +2,55 @@
 package com.example.CBS.controller;
 
 import com.example.CBS.model.Booking;
+import com.example.CBS.model.Location;
 import com.example.CBS.model.Rider;
 import com.example.CBS.model.Driver;
 import com.example.CBS.payload.request.BookingRequest;
 import com.example.CBS.payload.request.LocationDTO;
+import com.example.CBS.payload.response.BookingEventResponse;
+import com.example.CBS.payload.response.BookingPage;
+import com.example.CBS.payload.response.BookingResponse;
+import com.example.CBS.payload.response.FareQuoteResponse;
+import com.example.CBS.pricing.FareQuoteService;
 import com.example.CBS.security.services.UserDetailsImpl;
+import com.example.CBS.service.BookingExportService;
 import com.example.CBS.service.BookingService;
 import com.example.CBS.repository.RiderRepository; // For rider conversion
 import com.example.CBS.repository.DriverRepository; // For driver conversion
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/bookings")
 public class BookingController {
 
     private final BookingService bookingService;
+    private final FareQuoteService fareQuoteService;
+    private final BookingExportService bookingExportService;
     private final RiderRepository riderRepository; // To fetch Rider object for service
     private final DriverRepository driverRepository; // To fetch Driver object for service
 
-    public BookingController(BookingService bookingService, RiderRepository riderRepository, DriverRepository driverRepository) {
+    public BookingController(BookingService bookingService, FareQuoteService fareQuoteService,
+                             BookingExportService bookingExportService,
+                             RiderRepository riderRepository, DriverRepository driverRepository) {
         this.bookingService = bookingService;
+        this.fareQuoteService = fareQuoteService;
+        this.bookingExportService = bookingExportService;
         this.riderRepository = riderRepository;
         this.driverRepository = driverRepository;
     }
@@ -45,78 +66,105 @@ public class BookingController {
 
     @PostMapping("/request-ride")
     @PreAuthorize("hasRole('RIDER')")
-    public ResponseEntity<Booking> requestRide(@Valid @RequestBody BookingRequest request) {
+    public ResponseEntity<BookingResponse> requestRide(@Valid @RequestBody BookingRequest request,
+                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         Long riderId = getCurrentUserId();
         // Convert LocationDTO to Location entity
         LocationDTO pickupDTO = request.getPickupLocation();
         LocationDTO dropoffDTO = request.getDropoffLocation();
 
-        Booking booking = bookingService.requestRide(
+        // A retry carrying the same Idempotency-Key gets the original booking back
+        BookingResponse response = bookingService.requestRide(
                 riderId,
-                new com.cabbooking.cabbookingbackend.model.Location(pickupDTO.getLatitude(), pickupDTO.getLongitude(), pickupDTO.getAddress()),
-                new com.cabbooking.cabbookingbackend.model.Location(dropoffDTO.getLatitude(), dropoffDTO.getLongitude(), dropoffDTO.getAddress()),
+                new Location(pickupDTO.getLatitude(), pickupDTO.getLongitude(), pickupDTO.getAddress()),
+                new Location(dropoffDTO.getLatitude(), dropoffDTO.getLongitude(), dropoffDTO.getAddress()),
+                request.getPreferredCabType(),
+                idempotencyKey
+        );
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    // Price check without creating a booking; answered from memory
+    @PostMapping("/quote")
+    @PreAuthorize("hasRole('RIDER')")
+    public ResponseEntity<FareQuoteResponse> quoteFare(@Valid @RequestBody BookingRequest request) {
+        LocationDTO pickupDTO = request.getPickupLocation();
+        LocationDTO dropoffDTO = request.getDropoffLocation();
+
+        FareQuoteResponse quote = fareQuoteService.quote(
+                new Location(pickupDTO.getLatitude(), pickupDTO.getLongitude(), pickupDTO.getAddress()),
+                new Location(dropoffDTO.getLatitude(), dropoffDTO.getLongitude(), dropoffDTO.getAddress()),
                 request.getPreferredCabType()
         );
-        return new ResponseEntity<>(booking, HttpStatus.CREATED);
+        return ResponseEntity.ok(quote);
     }
 
     @PutMapping("/{bookingId}/accept")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<Booking> driverAcceptsBooking(@PathVariable Long bookingId) {
+    public ResponseEntity<BookingResponse> driverAcceptsBooking(@PathVariable Long bookingId) {
         Long driverId = getCurrentUserId();
-        Booking updatedBooking = bookingService.driverAcceptsBooking(bookingId, driverId);
-        return ResponseEntity.ok(updatedBooking);
+        return ResponseEntity.ok(bookingService.driverAcceptsBooking(bookingId, driverId));
+    }
+
+    @PutMapping("/{bookingId}/decline")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<BookingResponse> driverDeclinesBooking(@PathVariable Long bookingId) {
+        Long driverId = getCurrentUserId();
+        return ResponseEntity.ok(bookingService.driverDeclinesBooking(bookingId, driverId));
     }
 
     @PutMapping("/{bookingId}/arrived")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<Booking> driverArrived(@PathVariable Long bookingId) {
+    public ResponseEntity<BookingResponse> driverArrived(@PathVariable Long bookingId) {
         Long driverId = getCurrentUserId();
-        Booking updatedBooking = bookingService.driverArrived(bookingId, driverId);
-        return ResponseEntity.ok(updatedBooking);
+        return ResponseEntity.ok(bookingService.driverArrived(bookingId, driverId));
     }
 
     @PutMapping("/{bookingId}/start")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<Booking> startRide(@PathVariable Long bookingId) {
+    public ResponseEntity<BookingResponse> startRide(@PathVariable Long bookingId) {
         Long driverId = getCurrentUserId();
-        Booking updatedBooking = bookingService.startRide(bookingId, driverId);
-        return ResponseEntity.ok(updatedBooking);
+        return ResponseEntity.ok(bookingService.startRide(bookingId, driverId));
     }
 
     @PutMapping("/{bookingId}/complete")
     @PreAuthorize("hasRole('DRIVER')")
-    public ResponseEntity<Booking> completeRide(@PathVariable Long bookingId) {
+    public ResponseEntity<BookingResponse> completeRide(@PathVariable Long bookingId) {
         Long driverId = getCurrentUserId();
-        Booking updatedBooking = bookingService.completeRide(bookingId, driverId);
-        return ResponseEntity.ok(updatedBooking);
+        return ResponseEntity.ok(bookingService.completeRide(bookingId, driverId));
     }
 
     @PutMapping("/{bookingId}/cancel")
     @PreAuthorize("hasAnyRole('RIDER', 'DRIVER', 'ADMIN')")
-    public ResponseEntity<Booking> cancelBooking(@PathVariable Long bookingId) {
+    public ResponseEntity<BookingResponse> cancelBooking(@PathVariable Long bookingId) {
         Long userId = getCurrentUserId(); // Can be rider or driver
-        Booking cancelledBooking = bookingService.cancelBooking(bookingId, userId);
-        return ResponseEntity.ok(cancelledBooking);
+        return ResponseEntity.ok(bookingService.cancelBooking(bookingId, userId));
     }
 
+    // Former unbounded listing, kept for existing clients; now the same paginated history as /history
+    @Deprecated
     @GetMapping("/my-bookings")
     @PreAuthorize("hasAnyRole('RIDER', 'DRIVER')")
-    public ResponseEntity<List<Booking>> getMyBookings() {
+    public ResponseEntity<BookingPage> getMyBookings(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int size) {
+        return getBookingHistory(cursor, size);
+    }
+
+    // Keyset-paginated history of the current rider or driver, newest first
+    @GetMapping("/history")
+    @PreAuthorize("hasAnyRole('RIDER', 'DRIVER')")
+    public ResponseEntity<BookingPage> getBookingHistory(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "20") int size) {
         Long userId = getCurrentUserId();
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         boolean isRider = authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_RIDER"));
 
-        if (isRider) {
-            return ResponseEntity.ok(bookingService.getRiderBookings(userId));
-        } else { // Assuming it's a driver
-            return ResponseEntity.ok(bookingService.getDriverBookings(userId));
-        }
+        return ResponseEntity.ok(bookingService.getBookingHistory(userId, isRider, cursor, size));
     }
 
     @GetMapping("/{bookingId}")
     @PreAuthorize("hasAnyRole('RIDER', 'DRIVER', 'ADMIN')")
-    public ResponseEntity<Booking> getBookingDetails(@PathVariable Long bookingId) {
+    public ResponseEntity<BookingResponse> getBookingDetails(@PathVariable Long bookingId) {
         // Here you would add logic to ensure the current user is authorized to view this booking
         // e.g., if current user is rider, check if booking.getRider().getId() == currentUserId
         // if current user is driver, check if booking.getDriver().getId() == currentUserId
@@ -127,12 +175,59 @@ public class BookingController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    // Admin endpoint
+    // Server-Sent Events stream of status changes and, once accepted, the driver's position; replaces polling
+    @GetMapping(value = "/{bookingId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('RIDER', 'DRIVER', 'ADMIN')")
+    public SseEmitter streamBooking(@PathVariable Long bookingId) {
+        Long userId = getCurrentUserId();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean isAdmin = authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        return bookingService.subscribeToBooking(bookingId, userId, isAdmin);
+    }
+
+    // Full audit trail of the booking's state changes, oldest first
+    @GetMapping("/{bookingId}/events")
+    @PreAuthorize("hasAnyRole('RIDER', 'DRIVER', 'ADMIN')")
+    public ResponseEntity<List<BookingEventResponse>> getBookingEvents(@PathVariable Long bookingId) {
+        Long userId = getCurrentUserId();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean isAdmin = authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        return ResponseEntity.ok(bookingService.getBookingEvents(bookingId, userId, isAdmin));
+    }
+
+    // Admin endpoint: paginated, newest first
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Booking>> getAllBookings() {
-        // Not implemented in BookingService yet, but for admin, you could add
-        // List<Booking> findAll(); method to repository and service.
-        return ResponseEntity.ok(bookingService.getBookingRepository().findAll());
+    public ResponseEntity<BookingPage> getAllBookings(@RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(bookingService.getAllBookings(cursor, size));
+    }
+
+    // Admin endpoint: streams every matching booking as NDJSON or CSV with constant memory
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @RequestParam(defaultValue = "NDJSON") BookingExportService.Format format,
+            @RequestParam(required = false) Booking.BookingStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            bookingExportService.export(target, format, status, from, to);
+            if (target instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+        };
+
+        // gzip=true downloads a .gz file as is; no Content-Encoding, so clients don't decompress it on the fly
+        String extension = format == BookingExportService.Format.CSV ? "csv" : "ndjson";
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : format == BookingExportService.Format.CSV
+                        ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson");
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"bookings." + extension + (gzip ? ".gz" : "") + "\"")
+                .body(body);
     }
 }
@@ -2,8 +2,10 @@
 package com.example.CBS.controller;
 
 import com.example.CBS.model.Cab;
+import com.example.CBS.model.Location;
 import com.example.CBS.payload.request.CabRegistrationRequest;
 import com.example.CBS.payload.request.DriverLocationUpdateRequest;
+import com.example.CBS.payload.request.LocationDTO;
 import com.example.CBS.security.services.UserDetailsImpl;
 import com.example.CBS.service.CabService;
 import jakarta.validation.Valid;
@@ -58,7 +60,8 @@ public class CabController {
     @PreAuthorize("hasRole('DRIVER')")
     public ResponseEntity<String> updateDriverLocation(@Valid @RequestBody DriverLocationUpdateRequest request) {
         Long driverId = getCurrentUserId();
-        cabService.updateDriverLocation(driverId, request.getCurrentLocation());
+        LocationDTO location = request.getCurrentLocation();
+        cabService.updateDriverLocation(driverId, new Location(location.getLatitude(), location.getLongitude(), location.getAddress()));
         return ResponseEntity.ok("Driver location updated successfully.");
     }
 
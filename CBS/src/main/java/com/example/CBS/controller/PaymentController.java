@@ -1,21 +1,36 @@
-//Handles payment initiation and simulates webhook callbacks.
+//Handles payment initiation and receives webhook callbacks.
 package com.example.CBS.controller;
 
 import com.example.CBS.model.Payment;
+import com.example.CBS.model.ReconciliationMismatch;
+import com.example.CBS.model.ReconciliationRun;
+import com.example.CBS.payment.PaymentReconciler;
+import com.example.CBS.payment.PaymentWebhookIngestor;
 import com.example.CBS.service.PaymentService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/payments")
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentWebhookIngestor webhookIngestor;
+    private final PaymentReconciler paymentReconciler;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService,
+                             PaymentWebhookIngestor webhookIngestor,
+                             PaymentReconciler paymentReconciler) {
         this.paymentService = paymentService;
+        this.webhookIngestor = webhookIngestor;
+        this.paymentReconciler = paymentReconciler;
     }
 
     @PostMapping("/{paymentId}/initiate")
@@ -33,18 +48,27 @@ public class PaymentController {
      * It should typically NOT be called directly by the frontend. The payment gateway
      * calls this URL when a payment's status changes.
      * In production, this endpoint would need to be highly secured (e.g., IP whitelisting, signature verification).
+     * The callback is only queued here and applied in a batch shortly after; redeliveries of the same
+     * gateway event (eventId, or the Idempotency-Key header, or else transactionId + status) are applied once.
      */
     @PostMapping("/callback")
     public ResponseEntity<String> handlePaymentCallback(
             @RequestParam("transactionId") String transactionId,
             @RequestParam("status") String status,
-            @RequestParam(value = "payerId", required = false) String payerId) { // Payer ID might be optional
+            @RequestParam(value = "payerId", required = false) String payerId, // Payer ID might be optional
+            @RequestParam(value = "eventId", required = false) String eventId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        // Without a gateway event id, a redelivery is the same status for the same transaction: derive the id from those
+        String gatewayEventId = eventId != null ? eventId : idempotencyKey != null ? idempotencyKey
+                : UUID.nameUUIDFromBytes((transactionId + ":" + status.toUpperCase()).getBytes(StandardCharsets.UTF_8)).toString();
         try {
-            Payment updatedPayment = paymentService.handlePaymentCallback(transactionId, status, payerId);
-            System.out.println("Payment callback received for Transaction ID: " + transactionId + ", Status: " + status);
-            return ResponseEntity.ok("Callback processed. Payment status: " + updatedPayment.getStatus());
-        } catch (RuntimeException e) {
-            System.err.println("Error processing payment callback: " + e.getMessage());
+            if (!webhookIngestor.accept(gatewayEventId, transactionId, status, payerId)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "5")
+                        .body("Callback queue is full, retry later.");
+            }
+            return ResponseEntity.accepted().body("Callback accepted for transaction ID: " + transactionId);
+        } catch (IllegalArgumentException e) {
             return new ResponseEntity<>("Error processing callback: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
@@ -56,6 +80,28 @@ public class PaymentController {
         return ResponseEntity.ok("Refund initiated for payment ID: " + paymentId);
     }
 
+    // Reconciles PENDING/FAILED payments against a settlement file in the background; poll the returned run
+    @PostMapping("/reconciliations")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReconciliationRun> startReconciliation(@RequestParam("settlementFile") String settlementFile) {
+        return ResponseEntity.accepted().body(paymentReconciler.start(settlementFile));
+    }
+
+    @GetMapping("/reconciliations/{runId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReconciliationRun> getReconciliation(@PathVariable Long runId) {
+        return ResponseEntity.ok(paymentReconciler.getRun(runId));
+    }
+
+    @GetMapping("/reconciliations/{runId}/mismatches")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ReconciliationMismatch>> getReconciliationMismatches(
+            @PathVariable Long runId,
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok(paymentReconciler.getMismatches(runId, afterId, size));
+    }
+
     @GetMapping("/{paymentId}")
     @PreAuthorize("hasAnyRole('RIDER', 'DRIVER', 'ADMIN')") // Rider can see their payment, driver/admin can see others
     public ResponseEntity<Payment> getPaymentDetails(@PathVariable Long paymentId) {
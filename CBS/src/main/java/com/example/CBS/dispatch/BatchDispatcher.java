@@ -0,0 +1,265 @@
+//Optional batched matching: collects ride requests over a short window and assigns them to drivers jointly.
+package com.example.CBS.dispatch;
+
+import com.example.CBS.geo.DriverSpatialIndex;
+import com.example.CBS.model.Cab;
+import com.example.CBS.service.AfterCommit;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enabled with app.dispatch.mode=batch. Instead of offering each request to its own nearest driver as it
+ * arrives, requests are collected for app.dispatch.batch.window-ms and solved as one minimum total pickup
+ * distance assignment per cab type. Each request only has edges to its k nearest drivers from the spatial
+ * index, so the graph splits into connected components of requests that compete for shared drivers. Each
+ * component is solved on its own with a cost matrix of its requests by its drivers (missing pairs cost
+ * {@link HungarianAssignment#NO_EDGE}). A lone request simply keeps its nearest driver. app.dispatch.batch.max-size
+ * bounds the requests solved together, so no matrix exceeds max-size by max-size * k.
+ * <p>
+ * The solver only decides who gets offered first. Each booking then goes through the normal
+ * {@link DispatchEngine} offer cascade with its assigned driver at the head of the list. A window holding a
+ * single request has nothing to optimise and is dispatched greedily.
+ */
+@Component
+public class BatchDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchDispatcher.class);
+
+    private final DispatchEngine dispatchEngine;
+    private final DriverSpatialIndex driverIndex;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    private final ConcurrentLinkedQueue<PendingRequest> window = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService executor;
+    private DistributionSummary batchSizes;
+    private Timer matchingTimer;
+    private DistributionSummary matchingCandidates;
+
+    @Value("${app.dispatch.batch.window-ms:2000}")
+    private long windowMs;
+
+    @Value("${app.dispatch.batch.max-size:200}")
+    private int maxBatchSize;
+
+    @Value("${app.matching.candidate-limit:10}")
+    private int candidateLimit;
+
+    @Value("${app.matching.max-radius-km:10}")
+    private double maxSearchRadiusKm;
+
+    public BatchDispatcher(DispatchEngine dispatchEngine,
+                           DriverSpatialIndex driverIndex,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.dispatch.mode:offer}") String dispatchMode) {
+        this.dispatchEngine = dispatchEngine;
+        this.driverIndex = driverIndex;
+        this.meterRegistry = meterRegistry;
+        this.enabled = "batch".equalsIgnoreCase(dispatchMode);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        matchingTimer = DispatchEngine.matchingTimer(meterRegistry, "batch");
+        matchingCandidates = DispatchEngine.matchingCandidates(meterRegistry, "batch");
+        batchSizes = DistributionSummary.builder("dispatch.batch.size")
+                .description("Ride requests per batch window")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        // Dedicated thread: solving never competes with request threads or the offer scheduler
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runWindow, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enqueueAfterCommit(Long bookingId, double pickupLatitude, double pickupLongitude, Cab.CabType cabType) {
+        AfterCommit.run(() -> window.add(new PendingRequest(bookingId, pickupLatitude, pickupLongitude, cabType)));
+    }
+
+    // --- Private Helper Methods ---
+
+    private void runWindow() {
+        try {
+            List<PendingRequest> batch = new ArrayList<>();
+            PendingRequest request;
+            while ((request = window.poll()) != null) {
+                batch.add(request);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            batchSizes.record(batch.size());
+            if (batch.size() == 1) {
+                dispatchGreedy(batch.get(0));
+                return;
+            }
+
+            Map<Cab.CabType, List<PendingRequest>> byType = new EnumMap<>(Cab.CabType.class);
+            batch.forEach(r -> byType.computeIfAbsent(r.cabType(), type -> new ArrayList<>()).add(r));
+            for (List<PendingRequest> requests : byType.values()) {
+                for (int from = 0; from < requests.size(); from += maxBatchSize) {
+                    solve(requests.subList(from, Math.min(from + maxBatchSize, requests.size())));
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Batch dispatch window failed: {}", e.getMessage());
+        }
+    }
+
+    private void solve(List<PendingRequest> requests) {
+        long startNanos = System.nanoTime();
+
+        // Sparse candidate lists: the k nearest drivers of each request
+        List<List<DriverSpatialIndex.Candidate>> candidates = new ArrayList<>(requests.size());
+        for (PendingRequest request : requests) {
+            long matchStartNanos = System.nanoTime();
+            List<DriverSpatialIndex.Candidate> nearby = driverIndex.findNearest(request.pickupLatitude(),
+                    request.pickupLongitude(), request.cabType(), candidateLimit, maxSearchRadiusKm);
+            matchingTimer.record(System.nanoTime() - matchStartNanos, TimeUnit.NANOSECONDS);
+            matchingCandidates.record(nearby.size());
+            candidates.add(nearby);
+        }
+
+        Long[] assigned = new Long[requests.size()];
+        for (List<Integer> component : components(candidates)) {
+            // A lone request has no competition: its nearest driver, already first in its list, is optimal
+            if (component.size() > 1) {
+                assign(component, candidates, assigned);
+            }
+        }
+
+        Timer.builder("dispatch.batch.solve")
+                .description("Time to build and solve one batch assignment")
+                .tag("batch.size", sizeBucket(requests.size()))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+
+        for (int row = 0; row < requests.size(); row++) {
+            PendingRequest request = requests.get(row);
+            List<DriverSpatialIndex.Candidate> ranked = new ArrayList<>(candidates.get(row));
+            Long assignedDriverId = assigned[row];
+            if (assignedDriverId != null) {
+                // Offer the jointly assigned driver first, then fall back to the nearest ones
+                ranked.sort(Comparator.comparing((DriverSpatialIndex.Candidate c) -> !c.driverId().equals(assignedDriverId))
+                        .thenComparingDouble(DriverSpatialIndex.Candidate::distanceKm));
+            }
+            dispatchEngine.dispatchWithPreferredDrivers(request.bookingId(), request.pickupLatitude(),
+                    request.pickupLongitude(), request.cabType(), ranked);
+        }
+    }
+
+    // Groups requests that share a candidate driver, directly or through other requests (union-find)
+    private static List<List<Integer>> components(List<List<DriverSpatialIndex.Candidate>> candidates) {
+        int[] parent = new int[candidates.size()];
+        for (int row = 0; row < parent.length; row++) {
+            parent[row] = row;
+        }
+        Map<Long, Integer> firstRowOf = new HashMap<>();
+        for (int row = 0; row < candidates.size(); row++) {
+            for (DriverSpatialIndex.Candidate c : candidates.get(row)) {
+                Integer other = firstRowOf.putIfAbsent(c.driverId(), row);
+                if (other != null) {
+                    parent[root(parent, row)] = root(parent, other);
+                }
+            }
+        }
+        Map<Integer, List<Integer>> byRoot = new LinkedHashMap<>();
+        for (int row = 0; row < parent.length; row++) {
+            byRoot.computeIfAbsent(root(parent, row), r -> new ArrayList<>()).add(row);
+        }
+        return new ArrayList<>(byRoot.values());
+    }
+
+    private static int root(int[] parent, int row) {
+        while (parent[row] != row) {
+            parent[row] = parent[parent[row]]; // Path halving
+            row = parent[row];
+        }
+        return row;
+    }
+
+    // Minimum total pickup distance over one component; its matrix is only as wide as the drivers it shares
+    private static void assign(List<Integer> rows, List<List<DriverSpatialIndex.Candidate>> candidates, Long[] assigned) {
+        Map<Long, Integer> columnOf = new HashMap<>();
+        List<Long> drivers = new ArrayList<>();
+        for (int row : rows) {
+            for (DriverSpatialIndex.Candidate c : candidates.get(row)) {
+                if (columnOf.putIfAbsent(c.driverId(), drivers.size()) == null) {
+                    drivers.add(c.driverId());
+                }
+            }
+        }
+
+        int columns = Math.max(drivers.size(), rows.size()); // Pad so every row can be placed
+        double[][] cost = new double[rows.size()][columns];
+        for (int i = 0; i < rows.size(); i++) {
+            Arrays.fill(cost[i], HungarianAssignment.NO_EDGE);
+            for (DriverSpatialIndex.Candidate c : candidates.get(rows.get(i))) {
+                cost[i][columnOf.get(c.driverId())] = c.distanceKm();
+            }
+        }
+        int[] assignment = HungarianAssignment.solve(cost);
+        for (int i = 0; i < rows.size(); i++) {
+            int column = assignment[i];
+            if (column >= 0 && cost[i][column] < HungarianAssignment.NO_EDGE) {
+                assigned[rows.get(i)] = drivers.get(column);
+            }
+        }
+    }
+
+    private void dispatchGreedy(PendingRequest request) {
+        dispatchEngine.dispatchWithPreferredDrivers(request.bookingId(), request.pickupLatitude(),
+                request.pickupLongitude(), request.cabType(), List.of());
+    }
+
+    private static String sizeBucket(int size) {
+        if (size <= 10) {
+            return "2-10";
+        }
+        if (size <= 50) {
+            return "11-50";
+        }
+        return "51+";
+    }
+
+    private record PendingRequest(Long bookingId, double pickupLatitude, double pickupLongitude, Cab.CabType cabType) {
+    }
+}
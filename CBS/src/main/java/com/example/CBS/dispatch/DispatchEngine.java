@@ -0,0 +1,411 @@
+//Offers PENDING bookings to ranked nearby drivers, one at a time, with a timeout per offer.
+package com.example.CBS.dispatch;
+
+import com.example.CBS.geo.DriverSpatialIndex;
+import com.example.CBS.model.Booking;
+import com.example.CBS.model.Booking.BookingStatus;
+import com.example.CBS.model.Cab;
+import com.example.CBS.push.RideUpdateHub;
+import com.example.CBS.repository.BookingRepository;
+import com.example.CBS.repository.DriverRepository;
+import com.example.CBS.service.AfterCommit;
+import com.example.CBS.service.EntityCacheEvictor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A booking stays PENDING while it is offered to one driver at a time. Offering a driver reserves them
+ * (drivers.is_available = false) and sets bookings.driver_id, so driverAcceptsBooking can run. The offer is
+ * withdrawn when the driver declines or the timeout fires, and the next candidate is tried.
+ * Once candidates run out (or max-offers is reached) the booking becomes NO_DRIVER_FOUND.
+ * <p>
+ * Every state change is a conditional UPDATE on the booking row, so a late timeout can never undo an accept
+ * and an offer never lands on a cancelled booking. Open offers are just entries in a map plus a task in a
+ * shared ScheduledThreadPoolExecutor (a delay heap), so thousands of open offers cost no extra threads.
+ */
+@Component
+public class DispatchEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchEngine.class);
+
+    private final BookingRepository bookingRepository;
+    private final DriverRepository driverRepository;
+    private final DriverSpatialIndex driverIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final RideUpdateHub rideUpdateHub;
+    private final EntityCacheEvictor entityCacheEvictor;
+    private final MeterRegistry meterRegistry;
+    private final Timer matchingTimer;
+    private final DistributionSummary matchingCandidates;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final ConcurrentHashMap<Long, Dispatch> openDispatches = new ConcurrentHashMap<>();
+
+    @Value("${app.dispatch.offer-timeout-ms:15000}")
+    private long offerTimeoutMs;
+
+    @Value("${app.dispatch.max-offers:5}")
+    private int maxOffers;
+
+    @Value("${app.matching.candidate-limit:10}")
+    private int candidateLimit;
+
+    @Value("${app.matching.max-radius-km:10}")
+    private double maxSearchRadiusKm;
+
+    public DispatchEngine(BookingRepository bookingRepository,
+                          DriverRepository driverRepository,
+                          DriverSpatialIndex driverIndex,
+                          TransactionTemplate transactionTemplate,
+                          RideUpdateHub rideUpdateHub,
+                          EntityCacheEvictor entityCacheEvictor,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.dispatch.pool-size:4}") int poolSize) {
+        this.bookingRepository = bookingRepository;
+        this.driverRepository = driverRepository;
+        this.driverIndex = driverIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.rideUpdateHub = rideUpdateHub;
+        this.entityCacheEvictor = entityCacheEvictor;
+        this.meterRegistry = meterRegistry;
+        this.matchingTimer = matchingTimer(meterRegistry, "offer");
+        this.matchingCandidates = matchingCandidates(meterRegistry, "offer");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true); // Accepted offers must not leave their timeout in the heap
+    }
+
+    // --- Lifecycle hooks called by BookingService (all take effect after the caller's commit) ---
+
+    public void dispatchAfterCommit(Long bookingId, double pickupLatitude, double pickupLongitude, Cab.CabType cabType) {
+        AfterCommit.run(() -> start(new Dispatch(bookingId, pickupLatitude, pickupLongitude, cabType), List.of()));
+    }
+
+    // Starts a dispatch whose first candidates were already ranked by the caller (e.g. a batch assignment)
+    public void dispatchWithPreferredDrivers(Long bookingId, double pickupLatitude, double pickupLongitude,
+                                             Cab.CabType cabType, List<DriverSpatialIndex.Candidate> preferred) {
+        start(new Dispatch(bookingId, pickupLatitude, pickupLongitude, cabType), preferred);
+    }
+
+    public void acceptedAfterCommit(Long bookingId) {
+        AfterCommit.run(() -> close(bookingId));
+    }
+
+    public void closedAfterCommit(Long bookingId) {
+        AfterCommit.run(() -> close(bookingId));
+    }
+
+    /**
+     * Withdraws the offer made to this driver and moves on to the next candidate.
+     * Returns false if the driver no longer holds an offer for this booking.
+     */
+    public boolean decline(Long bookingId, Long driverId) {
+        Dispatch dispatch = openDispatches.get(bookingId);
+        if (dispatch == null) {
+            // Not tracked on this node (after a restart, or offered by another node): nothing would offer it
+            // again, so dispatch afresh from the booking row once the withdraw has committed
+            if (!withdraw(bookingId, driverId)) {
+                return false;
+            }
+            redispatchAfterCommit(bookingId, driverId);
+            return true;
+        }
+        dispatch.lock.lock();
+        try {
+            if (!driverId.equals(dispatch.offeredDriverId) || !withdrawCurrentOffer(dispatch)) {
+                return false;
+            }
+        } finally {
+            dispatch.lock.unlock();
+        }
+        // The caller's transaction may still hold the withdraw; offer the next driver only once it is visible
+        AfterCommit.run(() -> scheduler.execute(() -> offerNext(dispatch)));
+        return true;
+    }
+
+    public int openDispatchCount() {
+        return openDispatches.size();
+    }
+
+    // Nearest-driver lookup latency and result size, shared with BatchDispatcher under its own mode tag
+    static Timer matchingTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("matching.latency")
+                .description("Time to rank nearby drivers for one ride request")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    static DistributionSummary matchingCandidates(MeterRegistry meterRegistry, String mode) {
+        return DistributionSummary.builder("matching.candidates")
+                .description("Drivers returned by one nearest-driver lookup")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // --- Recovery: offers do not survive a restart, so withdraw them and dispatch again ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0) // Before the spatial index warms up, so released drivers are picked up by it
+    public void releaseStaleOffers() {
+        List<Long[]> staleOffers = transactionTemplate.execute(status -> bookingRepository.findByStatus(BookingStatus.PENDING).stream()
+                .filter(booking -> booking.getDriver() != null)
+                .map(booking -> new Long[]{booking.getId(), booking.getDriver().getId()})
+                .toList());
+        for (Long[] offer : staleOffers) {
+            withdraw(offer[0], offer[1]);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2) // After the spatial index is loaded
+    public void resumePendingDispatches() {
+        List<Booking> pending = transactionTemplate.execute(status -> bookingRepository.findByStatusAndDriverIsNull(BookingStatus.PENDING));
+        for (Booking booking : pending) {
+            if (booking.getRequestedCabType() != null) {
+                start(new Dispatch(booking.getId(), booking.getPickupLocation().getLatitude(),
+                        booking.getPickupLocation().getLongitude(), booking.getRequestedCabType()), List.of());
+            }
+        }
+        if (!pending.isEmpty()) {
+            logger.info("Resumed dispatch for {} pending bookings", pending.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // --- Private Helper Methods ---
+
+    private void start(Dispatch dispatch, List<DriverSpatialIndex.Candidate> preferred) {
+        if (openDispatches.putIfAbsent(dispatch.bookingId, dispatch) != null) {
+            return; // Already being dispatched
+        }
+        dispatch.candidates.addAll(preferred);
+        scheduler.execute(() -> offerNext(dispatch));
+    }
+
+    private void offerNext(Dispatch dispatch) {
+        dispatch.lock.lock();
+        try {
+            if (dispatch.closed) {
+                return;
+            }
+            while (dispatch.offersMade < maxOffers) {
+                DriverSpatialIndex.Candidate candidate = nextCandidate(dispatch);
+                if (candidate == null) {
+                    break;
+                }
+                OfferResult result = transactionTemplate.execute(status -> offer(dispatch.bookingId, candidate));
+                if (result == OfferResult.BOOKING_GONE) {
+                    closeLocked(dispatch);
+                    return;
+                }
+                if (result == OfferResult.OFFERED) {
+                    dispatch.offersMade++;
+                    dispatch.offeredDriverId = candidate.driverId();
+                    driverIndex.updateAvailability(candidate.driverId(), false);
+                    dispatch.timeout = scheduler.schedule(() -> onTimeout(dispatch, candidate.driverId()),
+                            offerTimeoutMs, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                // DRIVER_TAKEN: someone else reserved this driver first, try the next one
+            }
+
+            Boolean markedNoDriver = transactionTemplate.execute(status -> {
+                if (bookingRepository.markNoDriverFound(dispatch.bookingId, LocalDateTime.now()) != 1) {
+                    return false;
+                }
+                rideUpdateHub.publishStatusAfterCommit(dispatch.bookingId, BookingStatus.NO_DRIVER_FOUND, null);
+                return true;
+            });
+            if (Boolean.TRUE.equals(markedNoDriver)) {
+                meterRegistry.counter("bookings.no_driver_found", "reason", noDriverReason(dispatch)).increment();
+            }
+            logger.info("No driver found for booking {} after {} offers", dispatch.bookingId, dispatch.offersMade);
+            closeLocked(dispatch);
+        } catch (RuntimeException e) {
+            logger.error("Dispatch failed for booking {}: {}", dispatch.bookingId, e.getMessage());
+            closeLocked(dispatch);
+        } finally {
+            dispatch.lock.unlock();
+        }
+    }
+
+    // Runs inside a transaction: reserve the driver, then attach them to the booking if it is still waiting
+    private OfferResult offer(Long bookingId, DriverSpatialIndex.Candidate candidate) {
+        if (driverRepository.claimIfAvailable(candidate.driverId()) != 1) {
+            return OfferResult.DRIVER_TAKEN;
+        }
+        entityCacheEvictor.evictDriver(candidate.driverId());
+        if (bookingRepository.assignOffer(bookingId, candidate.driverId(), candidate.cabId(), LocalDateTime.now()) != 1) {
+            driverRepository.release(candidate.driverId());
+            return OfferResult.BOOKING_GONE;
+        }
+        return OfferResult.OFFERED;
+    }
+
+    private void onTimeout(Dispatch dispatch, Long driverId) {
+        dispatch.lock.lock();
+        try {
+            if (dispatch.closed || !driverId.equals(dispatch.offeredDriverId)) {
+                return;
+            }
+            if (!withdrawCurrentOffer(dispatch)) {
+                closeLocked(dispatch); // Accepted or cancelled in the meantime
+                return;
+            }
+            logger.info("Offer for booking {} to driver {} timed out", dispatch.bookingId, driverId);
+        } finally {
+            dispatch.lock.unlock();
+        }
+        offerNext(dispatch);
+    }
+
+    // Caller holds dispatch.lock
+    private boolean withdrawCurrentOffer(Dispatch dispatch) {
+        Long driverId = dispatch.offeredDriverId;
+        if (dispatch.timeout != null) {
+            dispatch.timeout.cancel(false);
+        }
+        dispatch.offeredDriverId = null;
+        dispatch.timeout = null;
+        return withdraw(dispatch.bookingId, driverId);
+    }
+
+    private boolean withdraw(Long bookingId, Long driverId) {
+        Boolean withdrawn = transactionTemplate.execute(status -> {
+            if (bookingRepository.withdrawOffer(bookingId, driverId, LocalDateTime.now()) != 1) {
+                return false;
+            }
+            driverRepository.release(driverId);
+            entityCacheEvictor.evictDriver(driverId);
+            return true;
+        });
+        if (Boolean.TRUE.equals(withdrawn)) {
+            // Deferred when a caller's transaction (a decline) still holds the withdraw
+            AfterCommit.run(() -> driverIndex.updateAvailability(driverId, true));
+            return true;
+        }
+        return false;
+    }
+
+    private void redispatchAfterCommit(Long bookingId, Long declinedDriverId) {
+        Dispatch dispatch = transactionTemplate.execute(status -> bookingRepository.findById(bookingId)
+                .map(booking -> new Dispatch(booking.getId(), booking.getPickupLocation().getLatitude(),
+                        booking.getPickupLocation().getLongitude(), booking.getRequestedCabType()))
+                .orElse(null));
+        if (dispatch == null) {
+            return;
+        }
+        dispatch.tried.add(declinedDriverId); // Don't offer it straight back to the driver who declined
+        AfterCommit.run(() -> start(dispatch, List.of()));
+    }
+
+    private DriverSpatialIndex.Candidate nextCandidate(Dispatch dispatch) {
+        if (dispatch.candidates.isEmpty() && !dispatch.searched) {
+            // Rank once per dispatch; drivers already tried (e.g. preferred ones) are skipped below
+            dispatch.searched = true;
+            long startNanos = System.nanoTime();
+            List<DriverSpatialIndex.Candidate> nearest = driverIndex.findNearest(dispatch.pickupLatitude,
+                    dispatch.pickupLongitude, dispatch.cabType, candidateLimit, maxSearchRadiusKm);
+            matchingTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            matchingCandidates.record(nearest.size());
+            dispatch.candidates.addAll(nearest);
+        }
+        DriverSpatialIndex.Candidate candidate;
+        while ((candidate = dispatch.candidates.poll()) != null) {
+            if (dispatch.tried.add(candidate.driverId())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private String noDriverReason(Dispatch dispatch) {
+        if (dispatch.offersMade >= maxOffers) {
+            return "max_offers";
+        }
+        return dispatch.tried.isEmpty() ? "no_candidates" : "candidates_exhausted";
+    }
+
+    private void close(Long bookingId) {
+        Dispatch dispatch = openDispatches.get(bookingId);
+        if (dispatch == null) {
+            return;
+        }
+        dispatch.lock.lock();
+        try {
+            closeLocked(dispatch);
+        } finally {
+            dispatch.lock.unlock();
+        }
+    }
+
+    private void closeLocked(Dispatch dispatch) {
+        dispatch.closed = true;
+        if (dispatch.timeout != null) {
+            dispatch.timeout.cancel(false);
+        }
+        openDispatches.remove(dispatch.bookingId, dispatch);
+    }
+
+    private enum OfferResult {
+        OFFERED, DRIVER_TAKEN, BOOKING_GONE
+    }
+
+    // Mutable per-booking state, guarded by its lock
+    private static final class Dispatch {
+        final Long bookingId;
+        final double pickupLatitude;
+        final double pickupLongitude;
+        final Cab.CabType cabType;
+        final ReentrantLock lock = new ReentrantLock();
+        final Deque<DriverSpatialIndex.Candidate> candidates = new ArrayDeque<>();
+        final Set<Long> tried = new HashSet<>();
+
+        boolean searched;
+        boolean closed;
+        int offersMade;
+        Long offeredDriverId;
+        ScheduledFuture<?> timeout;
+
+        Dispatch(Long bookingId, double pickupLatitude, double pickupLongitude, Cab.CabType cabType) {
+            this.bookingId = bookingId;
+            this.pickupLatitude = pickupLatitude;
+            this.pickupLongitude = pickupLongitude;
+            this.cabType = cabType;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+//Minimum-cost bipartite assignment (Hungarian method, O(n^2 * m)) used by the batch dispatcher.
+package com.example.CBS.dispatch;
+
+import java.util.Arrays;
+
+public final class HungarianAssignment {
+
+    // Cost of a pair that must not be matched; large but finite so the potentials stay well-defined
+    public static final double NO_EDGE = 1e9;
+
+    private HungarianAssignment() {
+    }
+
+    /**
+     * Returns, for each row, the column it is assigned to, minimising the total cost.
+     * Rows must not outnumber columns; callers pad with {@link #NO_EDGE} columns when needed.
+     * An assignment whose cost is {@link #NO_EDGE} means the row is effectively unmatched.
+     */
+    public static int[] solve(double[][] cost) {
+        int n = cost.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        int m = cost[0].length;
+        if (n > m) {
+            throw new IllegalArgumentException("Cost matrix must have at least as many columns as rows.");
+        }
+
+        // 1-indexed potentials and matching, index 0 is the virtual start column
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] match = new int[m + 1]; // match[j] = row assigned to column j
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            match[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = match[j0];
+                int j1 = 0;
+                double delta = Double.MAX_VALUE;
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        double reduced = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                        if (reduced < minv[j]) {
+                            minv[j] = reduced;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[match[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (match[j0] != 0);
+            // Flip the augmenting path
+            do {
+                int j1 = way[j0];
+                match[j0] = match[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] assignment = new int[n];
+        Arrays.fill(assignment, -1);
+        for (int j = 1; j <= m; j++) {
+            if (match[j] != 0) {
+                assignment[match[j] - 1] = j - 1;
+            }
+        }
+        return assignment;
+    }
+}
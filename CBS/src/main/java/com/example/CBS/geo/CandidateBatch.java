@@ -0,0 +1,57 @@
+//Reusable struct-of-arrays scratch space for the candidates of one nearest-driver lookup.
+package com.example.CBS.geo;
+
+import java.util.Arrays;
+
+/**
+ * Filled from the fleet store, then handed to {@link DistanceKernel#distancesWithin} as plain arrays.
+ * Grows by doubling and is reused across the rings of a lookup, so a lookup allocates it once.
+ */
+final class CandidateBatch {
+
+    long[] driverIds;
+    long[] cabIds;
+    double[] latitudes;
+    double[] longitudes;
+    double[] cosLatitudes;
+    double[] distancesKm;
+    int size;
+
+    CandidateBatch(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        driverIds = new long[capacity];
+        cabIds = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        cosLatitudes = new double[capacity];
+        distancesKm = new double[capacity];
+    }
+
+    void add(long driverId, long cabId, double latitude, double longitude, double cosLatitude) {
+        if (size == driverIds.length) {
+            grow();
+        }
+        driverIds[size] = driverId;
+        cabIds[size] = cabId;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        cosLatitudes[size] = cosLatitude;
+        size++;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    // --- Private Helper Methods ---
+
+    private void grow() {
+        int capacity = driverIds.length * 2;
+        driverIds = Arrays.copyOf(driverIds, capacity);
+        cabIds = Arrays.copyOf(cabIds, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        cosLatitudes = Arrays.copyOf(cosLatitudes, capacity);
+        distancesKm = Arrays.copyOf(distancesKm, capacity);
+    }
+}
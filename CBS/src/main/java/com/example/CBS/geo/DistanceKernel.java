@@ -0,0 +1,69 @@
+//Distance math shared by matching and fare estimation: scalar Haversine plus a bulk kernel over candidate arrays.
+package com.example.CBS.geo;
+
+/**
+ * Inputs are degrees plus a precomputed cos(latitude), which the fleet store keeps per driver so the
+ * only trig left per candidate is two sines and an arcsine. The bulk kernel runs over struct-of-arrays
+ * candidates and first rejects anything whose equirectangular distance (no trig at all) is clearly
+ * beyond the radius; only the survivors get the exact Haversine.
+ */
+public final class DistanceKernel {
+
+    private static final double RADIANS_PER_DEGREE = Math.PI / 180.0;
+    private static final double EARTH_DIAMETER_KM = 2 * GeoUtils.EARTH_RADIUS_KM;
+
+    // The equirectangular estimate is within a fraction of a percent of Haversine at city scale; the slack
+    // keeps a driver right on the radius from being dropped by the estimate's error
+    static final double PREFILTER_SLACK = 1.01;
+
+    private DistanceKernel() {
+    }
+
+    public static double cosLatitude(double latitude) {
+        return Math.cos(latitude * RADIANS_PER_DEGREE);
+    }
+
+    public static double haversineKm(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double sinHalfDLat = Math.sin((lat2 - lat1) * (RADIANS_PER_DEGREE / 2));
+        double sinHalfDLon = Math.sin((lon2 - lon1) * (RADIANS_PER_DEGREE / 2));
+        double a = sinHalfDLat * sinHalfDLat + cosLat1 * cosLat2 * sinHalfDLon * sinHalfDLon;
+        return EARTH_DIAMETER_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // Flat-earth approximation around the mean latitude; only good for short distances, hence the pre-filter use
+    public static double equirectangularKm(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double dLon = lon2 - lon1;
+        if (dLon > 180.0) {
+            dLon -= 360.0;
+        } else if (dLon < -180.0) {
+            dLon += 360.0;
+        }
+        double x = dLon * RADIANS_PER_DEGREE * 0.5 * (cosLat1 + cosLat2);
+        double y = (lat2 - lat1) * RADIANS_PER_DEGREE;
+        return GeoUtils.EARTH_RADIUS_KM * Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Writes the distance from the origin to each of the first {@code count} candidates into {@code outKm},
+     * or {@link Double#POSITIVE_INFINITY} when the candidate is farther than {@code maxKm}.
+     * Returns how many candidates are within {@code maxKm}.
+     */
+    public static int distancesWithin(double latitude, double longitude, double cosLat,
+                                      double[] latitudes, double[] longitudes, double[] cosLats, int count,
+                                      double maxKm, double[] outKm) {
+        double prefilterKm = maxKm * PREFILTER_SLACK;
+        int within = 0;
+        for (int i = 0; i < count; i++) {
+            double distance = Double.POSITIVE_INFINITY;
+            if (equirectangularKm(latitude, longitude, cosLat, latitudes[i], longitudes[i], cosLats[i]) <= prefilterKm) {
+                double exact = haversineKm(latitude, longitude, cosLat, latitudes[i], longitudes[i], cosLats[i]);
+                if (exact <= maxKm) {
+                    distance = exact;
+                    within++;
+                }
+            }
+            outKm[i] = distance;
+        }
+        return within;
+    }
+}
@@ -0,0 +1,114 @@
+//Write-behind buffer for driver GPS pings: keeps the latest position in memory and flushes it in JDBC batches.
+package com.example.CBS.geo;
+
+import com.example.CBS.model.Location;
+import com.example.CBS.push.RideUpdateHub;
+import com.example.CBS.service.EntityCacheEvictor;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Location pings only touch memory on the request path: the spatial index is updated immediately
+ * (matching reads from it) and the position is parked in a per-driver slot, so many pings between
+ * two flushes collapse into a single row update. A scheduled flush writes the drivers/cabs
+ * location columns with two JDBC batch statements.
+ */
+@Component
+public class DriverLocationBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriverLocationBuffer.class);
+
+    private static final String UPDATE_DRIVER_SQL =
+            "UPDATE drivers SET current_latitude = ?, current_longitude = ?, current_address = ? WHERE user_id = ?";
+    private static final String UPDATE_CAB_SQL =
+            "UPDATE cabs SET cab_latitude = ?, cab_longitude = ?, cab_address = ?, updated_at = ? WHERE driver_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DriverSpatialIndex driverIndex;
+    private final RideUpdateHub rideUpdateHub;
+    private final EntityCacheEvictor entityCacheEvictor;
+    private final int batchSize;
+
+    // Latest unflushed position per driver; a newer ping simply overwrites the older one
+    private final ConcurrentHashMap<Long, Location> pending = new ConcurrentHashMap<>();
+
+    public DriverLocationBuffer(JdbcTemplate jdbcTemplate,
+                                DriverSpatialIndex driverIndex,
+                                RideUpdateHub rideUpdateHub,
+                                EntityCacheEvictor entityCacheEvictor,
+                                @Value("${app.location.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.driverIndex = driverIndex;
+        this.rideUpdateHub = rideUpdateHub;
+        this.entityCacheEvictor = entityCacheEvictor;
+        this.batchSize = batchSize;
+    }
+
+    public void record(Long driverId, Location location) {
+        driverIndex.updateLocation(driverId, location.getLatitude(), location.getLongitude());
+        pending.put(driverId, location);
+        rideUpdateHub.publishDriverLocation(driverId, location.getLatitude(), location.getLongitude()); // Rider's live map
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.location.flush-interval-ms:2000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, Location>> batch = new ArrayList<>(pending.size());
+        for (Long driverId : pending.keySet()) {
+            Location location = pending.remove(driverId);
+            if (location != null) {
+                batch.add(Map.entry(driverId, location));
+            }
+        }
+
+        try {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate(UPDATE_DRIVER_SQL, batch, batchSize, (ps, entry) -> {
+                ps.setDouble(1, entry.getValue().getLatitude());
+                ps.setDouble(2, entry.getValue().getLongitude());
+                ps.setString(3, entry.getValue().getAddress());
+                ps.setLong(4, entry.getKey());
+            });
+            jdbcTemplate.batchUpdate(UPDATE_CAB_SQL, batch, batchSize, (ps, entry) -> {
+                ps.setDouble(1, entry.getValue().getLatitude());
+                ps.setDouble(2, entry.getValue().getLongitude());
+                ps.setString(3, entry.getValue().getAddress());
+                ps.setTimestamp(4, now);
+                ps.setLong(5, entry.getKey());
+            });
+            // JDBC writes bypass Hibernate, so drop the cached rows they made stale
+            for (Map.Entry<Long, Location> entry : batch) {
+                entityCacheEvictor.evictDriver(entry.getKey());
+                driverIndex.get(entry.getKey()).map(IndexedDriver::cabId).ifPresent(entityCacheEvictor::evictCab);
+            }
+        } catch (RuntimeException e) {
+            // Put the positions back unless a newer ping already arrived, and retry on the next tick
+            batch.forEach(entry -> pending.putIfAbsent(entry.getKey(), entry.getValue()));
+            logger.error("Failed to flush {} driver locations: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,261 @@
+//In-memory grid index of matchable drivers, bucketed by cab type, used for nearest-driver lookups.
+package com.example.CBS.geo;
+
+import com.example.CBS.model.Cab;
+import com.example.CBS.repository.CabRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Keeps every known driver in a fixed-size lat/lon grid. Only matchable drivers (online, active cab,
+ * known position) are placed into a cell; the cell buckets are split per {@link Cab.CabType} so a
+ * lookup never has to look at drivers of another type. Driver state lives in the {@link FleetStateStore};
+ * cells only hold store slots.
+ * The index is kept in sync by CabService and BookingService; the database stays the source of truth
+ * for availability, so a stale entry can only cost a failed reservation, never a double booking.
+ */
+@Component
+public class DriverSpatialIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriverSpatialIndex.class);
+    private static final long NO_CELL = Long.MIN_VALUE;
+
+    private final CabRepository cabRepository;
+    private final FleetStateStore store;
+    private final double cellSizeDeg;
+    private final double cellSizeKm;
+
+    // Serializes writers: the fleet store is single-writer, and a driver's cell move must match its stored state
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<Cab.CabType, ConcurrentHashMap<Long, Set<Integer>>> cellsByType = new EnumMap<>(Cab.CabType.class);
+
+    public DriverSpatialIndex(CabRepository cabRepository,
+                              FleetStateStore store,
+                              @Value("${app.matching.cell-size-deg:0.01}") double cellSizeDeg) {
+        this.cabRepository = cabRepository;
+        this.store = store;
+        this.cellSizeDeg = cellSizeDeg;
+        this.cellSizeKm = cellSizeDeg * GeoUtils.KM_PER_DEGREE;
+        for (Cab.CabType type : Cab.CabType.values()) {
+            cellsByType.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    // Load all currently matchable drivers once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1) // After stale dispatch offers are released, before pending dispatches resume
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        List<IndexedDriver> matchable = cabRepository.findMatchableDrivers();
+        matchable.forEach(this::upsert);
+        logger.info("Driver spatial index loaded with {} drivers, fleet store uses {} KB",
+                matchable.size(), store.footprintBytes() / 1024);
+    }
+
+    public void upsert(IndexedDriver driver) {
+        write(driver.driverId(), true, slot -> store.put(driver));
+    }
+
+    // Hot path for GPS pings: no allocation unless the driver changes cell
+    public void updateLocation(Long driverId, double latitude, double longitude) {
+        writeLock.lock();
+        try {
+            int slot = store.slotOf(driverId);
+            if (slot == FleetStateStore.NO_SLOT) {
+                store.put(new IndexedDriver(driverId, null, null, latitude, longitude, false, false, null, null));
+                return; // Not matchable without a cab, so there is no cell to join
+            }
+            long previousCell = matchableCell(slot);
+            store.putLocation(slot, latitude, longitude);
+            reindex(slot, previousCell, store.cabType(slot)); // A location change never changes the cab type
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void updateAvailability(Long driverId, boolean available) {
+        write(driverId, false, slot -> {
+            store.putAvailability(slot, available);
+            return slot;
+        });
+    }
+
+    public void updateCab(Long driverId, Long cabId, Cab.CabType cabType, Boolean cabActive) {
+        write(driverId, false, slot -> {
+            store.putCab(slot, cabId, cabType, cabActive);
+            return slot;
+        });
+    }
+
+    public void remove(Long driverId) {
+        write(driverId, false, slot -> {
+            store.clear(slot);
+            return slot;
+        });
+    }
+
+    public Optional<IndexedDriver> get(Long driverId) {
+        return Optional.ofNullable(store.get(driverId));
+    }
+
+    public boolean contains(Long driverId) {
+        return store.contains(driverId);
+    }
+
+    /**
+     * Returns up to {@code limit} matchable drivers of the given type, nearest first, within {@code maxRadiusKm}.
+     * Rings of cells are scanned outwards from the pickup cell and the scan stops as soon as no unscanned
+     * cell can hold a driver closer than the current k-th candidate.
+     */
+    public List<Candidate> findNearest(double latitude, double longitude, Cab.CabType cabType, int limit, double maxRadiusKm) {
+        ConcurrentHashMap<Long, Set<Integer>> cells = cellsByType.get(cabType);
+        if (limit <= 0 || cells.isEmpty()) {
+            return List.of();
+        }
+
+        // Max-heap on distance so the farthest of the current top-k is evicted first
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distanceKm).reversed());
+        CandidateBatch batch = new CandidateBatch(limit * 4);
+        double cosLat = DistanceKernel.cosLatitude(latitude);
+        int centerLat = latIndex(latitude);
+        int centerLon = lonIndex(longitude);
+        // Cells shrink east-west towards the poles, so use the narrower side as the ring step
+        double ringStepKm = cellSizeKm * Math.max(cosLat, 0.01);
+        int maxRing = (int) Math.ceil(maxRadiusKm / ringStepKm) + 1;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                for (int dLon = -ring; dLon <= ring; dLon++) {
+                    if (Math.abs(dLat) != ring && Math.abs(dLon) != ring) {
+                        continue; // Only visit the outer border of the ring
+                    }
+                    Set<Integer> bucket = cells.get(cellKey(centerLat + dLat, centerLon + dLon));
+                    if (bucket != null) {
+                        for (Integer slot : bucket) {
+                            // Skips drivers concurrently updated away; the bucket will be fixed by the writer
+                            store.gatherIfMatchable(slot, cabType, batch);
+                        }
+                    }
+                }
+            }
+            // Once the top-k is full only drivers closer than its farthest member can still get in
+            double thresholdKm = best.size() == limit ? Math.min(maxRadiusKm, best.peek().distanceKm()) : maxRadiusKm;
+            if (batch.size > 0 && DistanceKernel.distancesWithin(latitude, longitude, cosLat, batch.latitudes,
+                    batch.longitudes, batch.cosLatitudes, batch.size, thresholdKm, batch.distancesKm) > 0) {
+                keepNearest(batch, limit, best);
+            }
+            batch.clear();
+            // Anything in the next ring is at least ring * ringStepKm away
+            double nextRingMinKm = ring * ringStepKm;
+            if (best.size() == limit && best.peek().distanceKm() <= nextRingMinKm) {
+                break;
+            }
+        }
+
+        List<Candidate> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Candidate::distanceKm));
+        return result;
+    }
+
+    /**
+     * Weakly consistent scan over matchable drivers straight off the fleet store, for background aggregation
+     * such as surge supply counts. {@code cabType} null means any type.
+     */
+    public void forEachMatchable(Cab.CabType cabType, int minCapacity, double minRating, FleetStateStore.DriverVisitor visitor) {
+        store.forEachMatchable(cabType, minCapacity, minRating, visitor);
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    // --- Private Helper Methods ---
+
+    private void write(Long driverId, boolean insert, IntUnaryOperator update) {
+        writeLock.lock();
+        try {
+            int slot = store.slotOf(driverId);
+            if (slot == FleetStateStore.NO_SLOT && !insert) {
+                return;
+            }
+            long previousCell = slot == FleetStateStore.NO_SLOT ? NO_CELL : matchableCell(slot);
+            Cab.CabType previousType = slot == FleetStateStore.NO_SLOT ? null : store.cabType(slot);
+            slot = update.applyAsInt(slot);
+            reindex(slot, previousCell, previousType);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Called with the write lock held, after the store was updated
+    private void reindex(int slot, long previousCell, Cab.CabType previousType) {
+        long nextCell = matchableCell(slot);
+        Cab.CabType nextType = store.cabType(slot);
+        if (previousCell == nextCell && previousType == nextType) {
+            return;
+        }
+        if (previousCell != NO_CELL) {
+            cellsByType.get(previousType).computeIfPresent(previousCell, (cell, slots) -> {
+                slots.remove(slot);
+                return slots.isEmpty() ? null : slots;
+            });
+        }
+        if (nextCell != NO_CELL) {
+            cellsByType.get(nextType).computeIfAbsent(nextCell, cell -> ConcurrentHashMap.newKeySet()).add(slot);
+        }
+    }
+
+    private static void keepNearest(CandidateBatch batch, int limit, PriorityQueue<Candidate> best) {
+        for (int i = 0; i < batch.size; i++) {
+            double distance = batch.distancesKm[i];
+            if (distance == Double.POSITIVE_INFINITY) {
+                continue; // Out of range
+            }
+            if (best.size() < limit) {
+                best.add(new Candidate(batch.driverIds[i], batch.cabIds[i], distance));
+            } else if (distance < best.peek().distanceKm()) {
+                best.poll();
+                best.add(new Candidate(batch.driverIds[i], batch.cabIds[i], distance));
+            }
+        }
+    }
+
+    private long matchableCell(int slot) {
+        return store.isMatchable(slot)
+                ? cellKey(latIndex(store.latitude(slot)), lonIndex(store.longitude(slot)))
+                : NO_CELL;
+    }
+
+    private int latIndex(double latitude) {
+        return (int) Math.floor((latitude + 90.0) / cellSizeDeg);
+    }
+
+    private int lonIndex(double longitude) {
+        return (int) Math.floor((longitude + 180.0) / cellSizeDeg);
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    public record Candidate(Long driverId, Long cabId, double distanceKm) {
+    }
+}
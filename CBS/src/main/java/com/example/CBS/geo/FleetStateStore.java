@@ -0,0 +1,396 @@
+//Compact structure-of-arrays store of every known driver's matching state, keyed by driver id.
+package com.example.CBS.geo;
+
+import com.example.CBS.model.Cab;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Holds id, cab, position, cab type, capacity, availability and rating of each driver in primitive arrays
+ * indexed by a slot number, plus an open-addressing driver id to slot table. cos(latitude) is kept next to
+ * the position so distance checks do not recompute it per lookup. Memory is 51 bytes per slot plus 12 bytes
+ * per id-table entry, and the table has 2x as many entries as there are slots (rounded up to a power of two),
+ * so about 75 bytes per slot. Capacity doubles from app.fleet.initial-capacity (4096): 500k drivers take 524,288
+ * slots, ~39 MB. No object is allocated per driver, per update or per scanned driver, so GPS pings and
+ * scans produce no garbage. Slots are never reused; a removed driver just stops being present.
+ * <p>
+ * Concurrency: single writer, lock-free readers. Methods marked "writer only" must not run concurrently with
+ * each other ({@link DriverSpatialIndex} serializes them). Every slot has a seqlock version: the writer makes
+ * it odd, writes the fields, then makes it even again, and a reader retries if it saw an odd or a changed
+ * version, so no reader ever sees half of an update. Growing copies the arrays and publishes the new set,
+ * so a reader simply finishes on the snapshot it started with.
+ */
+@Component
+public final class FleetStateStore {
+
+    public static final int NO_SLOT = -1;
+
+    private static final VarHandle VERSION = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle ID_KEY = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final Cab.CabType[] CAB_TYPES = Cab.CabType.values();
+
+    // ids, cab ids, latitudes, longitudes, cos(latitude): 8 each; cab type, capacity, flags: 1 each; rating, version: 4 each
+    static final int BYTES_PER_SLOT = 5 * 8 + 3 + 2 * 4;
+    // id key (8) plus slot number (4)
+    static final int BYTES_PER_ID_ENTRY = 8 + 4;
+
+    private static final byte PRESENT = 1;
+    private static final byte AVAILABLE = 2;
+    private static final byte CAB_ACTIVE = 4;
+    private static final byte HAS_CAB = 8;
+    private static final byte HAS_LOCATION = 16;
+    private static final byte MATCHABLE = PRESENT | AVAILABLE | CAB_ACTIVE | HAS_CAB | HAS_LOCATION;
+
+    private volatile Columns columns;
+    private volatile int size; // Slots in use; published after the slot's fields
+
+    public FleetStateStore(@Value("${app.fleet.initial-capacity:4096}") int initialCapacity) {
+        this.columns = new Columns(Math.max(16, initialCapacity));
+    }
+
+    @FunctionalInterface
+    public interface DriverVisitor {
+        void visit(long driverId, long cabId, Cab.CabType cabType, double latitude, double longitude, int capacity, double rating);
+    }
+
+    // --- Readers (any thread, lock-free) ---
+
+    public int slotOf(long driverId) {
+        return columns.find(driverId);
+    }
+
+    // Allocation-free membership test; false for a driver whose slot was cleared
+    public boolean contains(long driverId) {
+        Columns a = columns;
+        int slot = a.find(driverId);
+        return slot != NO_SLOT && (a.flags[slot] & PRESENT) != 0;
+    }
+
+    /**
+     * Consistent snapshot of one driver, or null if unknown. Allocates; meant for occasional lookups.
+     */
+    public IndexedDriver get(long driverId) {
+        Columns a = columns;
+        int slot = a.find(driverId);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        while (true) {
+            int version = beginRead(a.versions, slot);
+            byte flags = a.flags[slot];
+            long cabId = a.cabIds[slot];
+            byte cabType = a.cabTypes[slot];
+            double latitude = a.latitudes[slot];
+            double longitude = a.longitudes[slot];
+            byte capacity = a.capacities[slot];
+            float rating = a.ratings[slot];
+            if (!validate(a.versions, slot, version)) {
+                continue;
+            }
+            if ((flags & PRESENT) == 0) {
+                return null;
+            }
+            boolean hasCab = (flags & HAS_CAB) != 0;
+            boolean hasLocation = (flags & HAS_LOCATION) != 0;
+            return new IndexedDriver(driverId,
+                    hasCab ? cabId : null,
+                    cabType >= 0 ? CAB_TYPES[cabType] : null,
+                    hasLocation ? latitude : null,
+                    hasLocation ? longitude : null,
+                    (flags & AVAILABLE) != 0,
+                    (flags & CAB_ACTIVE) != 0,
+                    hasCab ? (int) capacity : null,
+                    (double) rating);
+        }
+    }
+
+    /**
+     * Scans all matchable drivers, optionally restricted to a cab type (null = any), a minimum capacity and a
+     * minimum rating. Weakly consistent across drivers, consistent per driver.
+     */
+    public void forEachMatchable(Cab.CabType cabType, int minCapacity, double minRating, DriverVisitor visitor) {
+        int n = size; // Read before the arrays: they are at least as new as the size
+        Columns a = columns;
+        for (int slot = 0; slot < n; slot++) {
+            visitIfMatching(a, slot, cabType, minCapacity, minRating, visitor);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Heap held by the arrays, for sizing and logs
+    public long footprintBytes() {
+        Columns a = columns;
+        return (long) a.driverIds.length * BYTES_PER_SLOT + (long) a.idKeys.length * BYTES_PER_ID_ENTRY;
+    }
+
+    // --- Writer only ---
+
+    // Inserts or fully overwrites the driver; returns its slot
+    public int put(IndexedDriver driver) {
+        int slot = slotOf(driver.driverId());
+        if (slot == NO_SLOT) {
+            slot = append(driver.driverId());
+        }
+        Columns a = columns;
+        byte flags = PRESENT;
+        if (Boolean.TRUE.equals(driver.available())) {
+            flags |= AVAILABLE;
+        }
+        if (Boolean.TRUE.equals(driver.cabActive())) {
+            flags |= CAB_ACTIVE;
+        }
+        if (driver.cabId() != null) {
+            flags |= HAS_CAB;
+        }
+        if (driver.latitude() != null && driver.longitude() != null) {
+            flags |= HAS_LOCATION;
+        }
+
+        beginWrite(a.versions, slot);
+        a.flags[slot] = flags;
+        a.cabIds[slot] = driver.cabId() != null ? driver.cabId() : 0;
+        a.cabTypes[slot] = driver.cabType() != null ? (byte) driver.cabType().ordinal() : -1;
+        a.latitudes[slot] = driver.latitude() != null ? driver.latitude() : 0;
+        a.longitudes[slot] = driver.longitude() != null ? driver.longitude() : 0;
+        a.cosLatitudes[slot] = driver.latitude() != null ? DistanceKernel.cosLatitude(driver.latitude()) : 0;
+        a.capacities[slot] = driver.capacity() != null ? (byte) Math.min(driver.capacity(), Byte.MAX_VALUE) : 0;
+        a.ratings[slot] = driver.rating() != null ? driver.rating().floatValue() : 0f;
+        endWrite(a.versions, slot);
+        return slot;
+    }
+
+    public void putLocation(int slot, double latitude, double longitude) {
+        Columns a = columns;
+        double cosLatitude = DistanceKernel.cosLatitude(latitude);
+        beginWrite(a.versions, slot);
+        a.latitudes[slot] = latitude;
+        a.longitudes[slot] = longitude;
+        a.cosLatitudes[slot] = cosLatitude;
+        a.flags[slot] |= HAS_LOCATION;
+        endWrite(a.versions, slot);
+    }
+
+    public void putAvailability(int slot, boolean available) {
+        Columns a = columns;
+        beginWrite(a.versions, slot);
+        a.flags[slot] = (byte) (available ? a.flags[slot] | AVAILABLE : a.flags[slot] & ~AVAILABLE);
+        endWrite(a.versions, slot);
+    }
+
+    public void putCab(int slot, Long cabId, Cab.CabType cabType, Boolean cabActive) {
+        Columns a = columns;
+        byte flags = (byte) (a.flags[slot] & ~(HAS_CAB | CAB_ACTIVE));
+        if (cabId != null) {
+            flags |= HAS_CAB;
+        }
+        if (Boolean.TRUE.equals(cabActive)) {
+            flags |= CAB_ACTIVE;
+        }
+        beginWrite(a.versions, slot);
+        a.cabIds[slot] = cabId != null ? cabId : 0;
+        a.cabTypes[slot] = cabType != null ? (byte) cabType.ordinal() : -1;
+        a.flags[slot] = flags;
+        endWrite(a.versions, slot);
+    }
+
+    public void clear(int slot) {
+        Columns a = columns;
+        beginWrite(a.versions, slot);
+        a.flags[slot] = 0;
+        endWrite(a.versions, slot);
+    }
+
+    // Appends a consistent read of the slot to the batch if that driver is matchable with the given cab type
+    boolean gatherIfMatchable(int slot, Cab.CabType cabType, CandidateBatch batch) {
+        Columns a = columns;
+        while (true) {
+            int version = beginRead(a.versions, slot);
+            byte flags = a.flags[slot];
+            byte type = a.cabTypes[slot];
+            long driverId = a.driverIds[slot];
+            long cabId = a.cabIds[slot];
+            double latitude = a.latitudes[slot];
+            double longitude = a.longitudes[slot];
+            double cosLatitude = a.cosLatitudes[slot];
+            if (!validate(a.versions, slot, version)) {
+                continue;
+            }
+            if ((flags & MATCHABLE) != MATCHABLE || type != cabType.ordinal()) {
+                return false;
+            }
+            batch.add(driverId, cabId, latitude, longitude, cosLatitude);
+            return true;
+        }
+    }
+
+    // Plain reads of the writer's own state, used to work out which grid cell a driver leaves
+    boolean isMatchable(int slot) {
+        return (columns.flags[slot] & MATCHABLE) == MATCHABLE;
+    }
+
+    Cab.CabType cabType(int slot) {
+        byte type = columns.cabTypes[slot];
+        return type >= 0 ? CAB_TYPES[type] : null;
+    }
+
+    double latitude(int slot) {
+        return columns.latitudes[slot];
+    }
+
+    double longitude(int slot) {
+        return columns.longitudes[slot];
+    }
+
+    // --- Private Helper Methods ---
+
+    private static boolean visitIfMatching(Columns a, int slot, Cab.CabType cabType, int minCapacity, double minRating,
+                                           DriverVisitor visitor) {
+        while (true) {
+            int version = beginRead(a.versions, slot);
+            byte flags = a.flags[slot];
+            byte type = a.cabTypes[slot];
+            long driverId = a.driverIds[slot];
+            long cabId = a.cabIds[slot];
+            double latitude = a.latitudes[slot];
+            double longitude = a.longitudes[slot];
+            byte capacity = a.capacities[slot];
+            float rating = a.ratings[slot];
+            if (!validate(a.versions, slot, version)) {
+                continue;
+            }
+            if ((flags & MATCHABLE) != MATCHABLE || (cabType != null && type != cabType.ordinal())
+                    || capacity < minCapacity || rating < minRating) {
+                return false;
+            }
+            visitor.visit(driverId, cabId, CAB_TYPES[type], latitude, longitude, capacity, rating);
+            return true;
+        }
+    }
+
+    private int append(long driverId) {
+        if (driverId <= 0) {
+            throw new IllegalArgumentException("Driver id must be positive: " + driverId);
+        }
+        int slot = size;
+        Columns a = columns;
+        if (slot == a.driverIds.length) {
+            a = a.grow();
+            columns = a; // Publish before any slot beyond the old capacity becomes visible through size
+        }
+        a.driverIds[slot] = driverId;
+        a.cabTypes[slot] = -1;
+        a.index(driverId, slot);
+        size = slot + 1;
+        return slot;
+    }
+
+    private static int beginRead(int[] versions, int slot) {
+        int version;
+        while (((version = (int) VERSION.getAcquire(versions, slot)) & 1) != 0) {
+            Thread.onSpinWait(); // Writer is mid-update; it only ever holds a slot for a few stores
+        }
+        return version;
+    }
+
+    private static boolean validate(int[] versions, int slot, int version) {
+        VarHandle.loadLoadFence(); // Field reads above may not move below the second version read
+        return (int) VERSION.getAcquire(versions, slot) == version;
+    }
+
+    private static void beginWrite(int[] versions, int slot) {
+        VERSION.setOpaque(versions, slot, versions[slot] + 1);
+        VarHandle.storeStoreFence(); // The odd version is visible before any field store
+    }
+
+    private static void endWrite(int[] versions, int slot) {
+        VERSION.setRelease(versions, slot, versions[slot] + 1);
+    }
+
+    private static int mix(long driverId) {
+        long h = driverId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // One generation of the arrays; replaced as a whole when the store grows
+    private static final class Columns {
+        final long[] driverIds;
+        final long[] cabIds;
+        final double[] latitudes;
+        final double[] longitudes;
+        final double[] cosLatitudes;
+        final byte[] cabTypes;
+        final byte[] capacities;
+        final byte[] flags;
+        final float[] ratings;
+        final int[] versions;
+        final long[] idKeys;  // Driver id, 0 = empty; at most half full
+        final int[] idSlots;
+
+        Columns(int capacity) {
+            driverIds = new long[capacity];
+            cabIds = new long[capacity];
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+            cosLatitudes = new double[capacity];
+            cabTypes = new byte[capacity];
+            capacities = new byte[capacity];
+            flags = new byte[capacity];
+            ratings = new float[capacity];
+            versions = new int[capacity];
+            int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            idKeys = new long[tableSize];
+            idSlots = new int[tableSize];
+        }
+
+        int find(long driverId) {
+            int mask = idKeys.length - 1;
+            for (int i = mix(driverId) & mask; ; i = (i + 1) & mask) {
+                long key = (long) ID_KEY.getAcquire(idKeys, i);
+                if (key == 0) {
+                    return NO_SLOT; // Checked first: 0 marks an empty entry, so id 0 must never match it
+                }
+                if (key == driverId) {
+                    return idSlots[i]; // Written before the key was released
+                }
+            }
+        }
+
+        void index(long driverId, int slot) {
+            int mask = idKeys.length - 1;
+            int i = mix(driverId) & mask;
+            while (idKeys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            idSlots[i] = slot;
+            ID_KEY.setRelease(idKeys, i, driverId);
+        }
+
+        // Called by the writer only; the copy is not visible to readers until published
+        Columns grow() {
+            Columns next = new Columns(driverIds.length * 2);
+            int n = driverIds.length;
+            System.arraycopy(driverIds, 0, next.driverIds, 0, n);
+            System.arraycopy(cabIds, 0, next.cabIds, 0, n);
+            System.arraycopy(latitudes, 0, next.latitudes, 0, n);
+            System.arraycopy(longitudes, 0, next.longitudes, 0, n);
+            System.arraycopy(cosLatitudes, 0, next.cosLatitudes, 0, n);
+            System.arraycopy(cabTypes, 0, next.cabTypes, 0, n);
+            System.arraycopy(capacities, 0, next.capacities, 0, n);
+            System.arraycopy(flags, 0, next.flags, 0, n);
+            System.arraycopy(ratings, 0, next.ratings, 0, n);
+            System.arraycopy(versions, 0, next.versions, 0, n);
+            Arrays.fill(next.cabTypes, n, next.cabTypes.length, (byte) -1);
+            for (int slot = 0; slot < n; slot++) {
+                next.index(driverIds[slot], slot);
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+//Shared geographic helpers used by matching and fare estimation.
+package com.example.CBS.geo;
+
+import com.example.CBS.model.Location;
+
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+    public static final double KM_PER_DEGREE = 111.32; // Length of one degree of latitude
+
+    private GeoUtils() {
+    }
+
+    public static double distanceKm(Location loc1, Location loc2) {
+        return distanceKm(loc1.getLatitude(), loc1.getLongitude(), loc2.getLatitude(), loc2.getLongitude());
+    }
+
+    // Haversine formula for distance between two lat/lon points
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        return DistanceKernel.haversineKm(lat1, lon1, DistanceKernel.cosLatitude(lat1),
+                lat2, lon2, DistanceKernel.cosLatitude(lat2)); // Distance in kilometers
+    }
+}
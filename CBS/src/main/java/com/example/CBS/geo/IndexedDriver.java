@@ -0,0 +1,33 @@
+//Minimal snapshot of a driver kept by the spatial index. Never loaded as a full entity graph.
+package com.example.CBS.geo;
+
+import com.example.CBS.model.Cab;
+
+public record IndexedDriver(Long driverId,
+                            Long cabId,
+                            Cab.CabType cabType,
+                            Double latitude,
+                            Double longitude,
+                            Boolean available,
+                            Boolean cabActive,
+                            Integer capacity,
+                            Double rating) {
+
+    // A driver is matchable only when online, with an active cab and a known position
+    public boolean isMatchable() {
+        return Boolean.TRUE.equals(available) && Boolean.TRUE.equals(cabActive)
+                && cabId != null && cabType != null && latitude != null && longitude != null;
+    }
+
+    public IndexedDriver withLocation(Double latitude, Double longitude) {
+        return new IndexedDriver(driverId, cabId, cabType, latitude, longitude, available, cabActive, capacity, rating);
+    }
+
+    public IndexedDriver withAvailability(boolean available) {
+        return new IndexedDriver(driverId, cabId, cabType, latitude, longitude, available, cabActive, capacity, rating);
+    }
+
+    public IndexedDriver withCab(Long cabId, Cab.CabType cabType, Boolean cabActive) {
+        return new IndexedDriver(driverId, cabId, cabType, latitude, longitude, available, cabActive, capacity, rating);
+    }
+}
@@ -11,7 +11,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings",
+        // Durable de-duplication of retried ride requests (see BookingService.requestRide)
+        uniqueConstraints = @UniqueConstraint(name = "uk_bookings_rider_idempotency_key", columnNames = {"rider_id", "idempotency_key"}),
+        indexes = {
+        // Keyset pagination of rider/driver history (see BookingRepository)
+        @Index(name = "idx_bookings_rider_created", columnList = "rider_id, created_at, id"),
+        @Index(name = "idx_bookings_driver_created", columnList = "driver_id, created_at, id"),
+        // Admin listing and date-range export
+        @Index(name = "idx_bookings_created", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -50,6 +59,9 @@ public class Booking extends BaseEntity {
     })
     private Location dropoffLocation;
 
+    @Enumerated(EnumType.STRING)
+    private Cab.CabType requestedCabType; // Cab type asked for by the rider, needed to (re)dispatch a PENDING booking
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private BookingStatus status; // PENDING, ACCEPTED, STARTED, COMPLETED, CANCELLED
@@ -63,6 +75,11 @@ public class Booking extends BaseEntity {
     @Column(precision = 10, scale = 2)
     private BigDecimal actualFare;
 
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey; // Client-supplied Idempotency-Key of the request that created this booking
+
+    private Integer projectedSequence; // Last BookingEvent sequence applied to this row (null = none)
+
     @OneToOne(mappedBy = "booking", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Payment payment; // One-to-one relationship with Payment
 
@@ -0,0 +1,68 @@
+//One immutable state change in a booking's lifecycle; the append-only log behind the bookings table.
+package com.example.CBS.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "booking_events",
+        uniqueConstraints = @UniqueConstraint(name = "uk_booking_events_booking_sequence", columnNames = {"booking_id", "sequence_number"}),
+        indexes = @Index(name = "idx_booking_events_unprojected", columnList = "projected, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false, updatable = false)
+    private Long bookingId; // Plain id, not an association: appending never loads or locks the booking
+
+    @Column(name = "sequence_number", nullable = false, updatable = false)
+    private Integer sequenceNumber; // 1, 2, 3... per booking; the unique key rejects concurrent transitions
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private EventType type;
+
+    @Column(updatable = false)
+    private Long actorId; // Rider or driver who caused the change
+
+    @Column(precision = 10, scale = 2, updatable = false)
+    private BigDecimal amount; // Actual fare on COMPLETED
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime occurredAt;
+
+    @JsonIgnore
+    @Column(nullable = false)
+    private Boolean projected = false; // Delivery bookkeeping for the projector, not part of the event
+
+    public enum EventType {
+        REQUESTED,
+        ACCEPTED,
+        ARRIVED,
+        STARTED,
+        COMPLETED,
+        CANCELLED;
+
+        public Booking.BookingStatus toStatus() {
+            return switch (this) {
+                case REQUESTED -> Booking.BookingStatus.PENDING;
+                case ACCEPTED -> Booking.BookingStatus.ACCEPTED;
+                case ARRIVED -> Booking.BookingStatus.ARRIVED;
+                case STARTED -> Booking.BookingStatus.STARTED;
+                case COMPLETED -> Booking.BookingStatus.COMPLETED;
+                case CANCELLED -> Booking.BookingStatus.CANCELLED;
+            };
+        }
+    }
+}
@@ -0,0 +1,35 @@
+//Durable record of an already processed idempotent request, keyed by scope and client-supplied key.
+package com.example.CBS.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_records",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_records_scope_key", columnNames = {"scope", "idempotency_key"}),
+        indexes = @Index(name = "idx_idempotency_records_created", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String scope; // e.g. "payment-callback"
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private Long resourceId; // What the first request produced or updated
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
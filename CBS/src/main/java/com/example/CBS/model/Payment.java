@@ -11,7 +11,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments",
+        indexes = {
+                // Gateway callbacks look payments up by transaction id
+                @Index(name = "idx_payments_transaction_id", columnList = "transaction_id", unique = true),
+                // Reconciliation walks PENDING/FAILED payments in id order
+                @Index(name = "idx_payments_status_id", columnList = "status, id")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,6 +43,7 @@ public class Payment extends BaseEntity {
     private PaymentStatus status; // PENDING, COMPLETED, FAILED, REFUNDED
 
     private String paymentMethod; // e.g., "PAYPAL", "CREDIT_CARD"
+    @Column(name = "transaction_id")
     private String transactionId; // ID from the payment gateway
     private String payerId; // ID of the payer (from PayPal, etc.)
 
@@ -46,6 +53,20 @@ public class Payment extends BaseEntity {
         PENDING,
         COMPLETED,
         FAILED,
-        REFUNDED
+        REFUNDED;
+
+        // Statuses only move forward: PENDING -> FAILED -> COMPLETED -> REFUNDED (a failed charge may still succeed)
+        public boolean canAdvanceTo(PaymentStatus next) {
+            return next.rank() > rank();
+        }
+
+        private int rank() {
+            return switch (this) {
+                case PENDING -> 0;
+                case FAILED -> 1;
+                case COMPLETED -> 2;
+                case REFUNDED -> 3;
+            };
+        }
     }
 }
@@ -0,0 +1,49 @@
+//A payment still to be created with the gateway for a completed booking; drained by PaymentOutboxWorker.
+package com.example.CBS.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "payment_outbox", indexes = @Index(name = "idx_payment_outbox_due", columnList = "status, next_attempt_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false, unique = true, updatable = false)
+    private Long bookingId; // Plain id: enqueueing on ride completion never loads the booking
+
+    @Column(nullable = false, precision = 10, scale = 2, updatable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt; // Also the lease: pushed forward while a worker is calling the gateway
+
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum OutboxStatus {
+        PENDING, // Waiting for (another) attempt
+        DONE,    // Payment row created
+        FAILED   // Gave up after app.payments.outbox.max-attempts; needs manual follow-up
+    }
+}
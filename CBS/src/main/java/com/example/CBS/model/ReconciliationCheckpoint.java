@@ -0,0 +1,36 @@
+//Progress of one payment-id range of a reconciliation run; advanced in the same transaction as its mismatches.
+package com.example.CBS.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "reconciliation_checkpoints",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reconciliation_checkpoints_run_partition", columnNames = {"run_id", "partition_index"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "partition_index", nullable = false)
+    private int partitionIndex;
+
+    @Column(nullable = false)
+    private long rangeEnd; // Inclusive upper payment id of the range
+
+    @Column(nullable = false)
+    private long lastPaymentId; // Everything up to and including this id has been compared
+
+    private long paymentsChecked;
+    private long mismatches;
+    private boolean done;
+}
@@ -0,0 +1,52 @@
+//A payment whose state disagrees with the gateway's settlement file, found by a reconciliation run.
+package com.example.CBS.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "reconciliation_mismatches",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reconciliation_mismatches_run_payment", columnNames = {"run_id", "payment_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationMismatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "payment_id", nullable = false)
+    private Long paymentId;
+
+    private String transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    @Enumerated(EnumType.STRING)
+    private Payment.PaymentStatus ourStatus;
+
+    @Enumerated(EnumType.STRING)
+    private Payment.PaymentStatus gatewayStatus; // Null for MISSING_AT_GATEWAY
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal ourAmount;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal gatewayAmount;
+
+    public enum Kind {
+        STATUS,            // Gateway settled the transaction with a different status
+        AMOUNT,            // Same transaction, different amount
+        MISSING_AT_GATEWAY // PENDING past the cutoff but absent from the settlement file
+    }
+}
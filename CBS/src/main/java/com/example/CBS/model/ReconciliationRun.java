@@ -0,0 +1,45 @@
+//One reconciliation of our PENDING/FAILED payments against a gateway settlement file.
+package com.example.CBS.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reconciliation_runs", indexes = @Index(name = "idx_reconciliation_runs_file", columnList = "settlement_file"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "settlement_file", nullable = false)
+    private String settlementFile; // File name inside app.payments.reconciliation.settlement-dir
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RunStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime pendingCutoff; // PENDING payments older than this must appear in the file
+
+    private long paymentsChecked;
+    private long mismatches;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    public enum RunStatus {
+        RUNNING, // Also left behind by a crash; the next trigger for the same file resumes it
+        COMPLETED,
+        FAILED
+    }
+}
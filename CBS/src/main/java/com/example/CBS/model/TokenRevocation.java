@@ -0,0 +1,24 @@
+//Durable cut-off per user: tokens issued before revokedAt are rejected on every node.
+package com.example.CBS.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "token_revocations",
+        indexes = @Index(name = "idx_token_revocations_revoked_at", columnList = "revoked_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+
+    @Id
+    private Long userId; // Not a foreign key: revocations must outlive deleted users
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
@@ -6,6 +6,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -13,6 +15,8 @@ import java.util.Set;
 @Entity
 @Table(name = "users") // Renamed to avoid conflict with SQL keyword
 @Inheritance(strategy = InheritanceType.JOINED) // Use JOINED strategy for subclasses
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user") // Declared on the root, so Rider and Driver share this region
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -39,6 +43,7 @@ public class User extends BaseEntity {
     private String lastName;
 
     @ManyToMany(fetch = FetchType.EAGER) // Eagerly load roles with user
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles")
     @JoinTable(
             name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -0,0 +1,29 @@
+// BookingEventResponse
+package com.example.CBS.payload.response;
+
+import com.example.CBS.model.Booking;
+import com.example.CBS.model.BookingEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One entry of a booking's audit trail; keeps the event log's bookkeeping columns out of the API
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingEventResponse {
+    private Integer sequenceNumber;
+    private BookingEvent.EventType type;
+    private Booking.BookingStatus status;
+    private Long actorId;
+    private BigDecimal amount;
+    private LocalDateTime occurredAt;
+
+    public static BookingEventResponse from(BookingEvent event) {
+        return new BookingEventResponse(event.getSequenceNumber(), event.getType(), event.getType().toStatus(),
+                event.getActorId(), event.getAmount(), event.getOccurredAt());
+    }
+}
@@ -0,0 +1,16 @@
+// BookingPage
+package com.example.CBS.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingPage {
+    private List<BookingSummary> items;
+    private String nextCursor; // Pass back as ?cursor= for the next page; null on the last page
+}
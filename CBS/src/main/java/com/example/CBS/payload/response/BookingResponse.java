@@ -0,0 +1,96 @@
+// BookingResponse
+package com.example.CBS.payload.response;
+
+import com.example.CBS.model.Booking;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Driver;
+import com.example.CBS.model.Location;
+import com.example.CBS.model.Rider;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * What the booking endpoints return instead of the entity. It only carries the rider/driver/cab fields a
+ * client needs, so serialising it never walks lazy associations or the users' roles. List endpoints select
+ * it directly with the JPQL constructor below; single-booking endpoints map an entity whose associations
+ * were fetched up front with {@link #from(Booking)}.
+ */
+@Data
+@NoArgsConstructor
+public class BookingResponse {
+    private Long id;
+    private Booking.BookingStatus status;
+    private Cab.CabType requestedCabType;
+    private Location pickupLocation;
+    private Location dropoffLocation;
+    private BigDecimal estimatedFare;
+    private BigDecimal actualFare;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    private Long riderId;
+    private String riderName;
+    private Long driverId;
+    private String driverName;
+    private Long cabId;
+    private String cabLicensePlate;
+    private Cab.CabType cabType;
+
+    // Used by the constructor expressions in BookingRepository; argument order matches RESPONSE_SELECT
+    public BookingResponse(Long id, Booking.BookingStatus status, Cab.CabType requestedCabType,
+                           Double pickupLatitude, Double pickupLongitude, String pickupAddress,
+                           Double dropoffLatitude, Double dropoffLongitude, String dropoffAddress,
+                           BigDecimal estimatedFare, BigDecimal actualFare,
+                           LocalDateTime startTime, LocalDateTime endTime, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           Long riderId, String riderFirstName, String riderLastName,
+                           Long driverId, String driverFirstName, String driverLastName,
+                           Long cabId, String cabLicensePlate, Cab.CabType cabType) {
+        this.id = id;
+        this.status = status;
+        this.requestedCabType = requestedCabType;
+        this.pickupLocation = new Location(pickupLatitude, pickupLongitude, pickupAddress);
+        this.dropoffLocation = new Location(dropoffLatitude, dropoffLongitude, dropoffAddress);
+        this.estimatedFare = estimatedFare;
+        this.actualFare = actualFare;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.riderId = riderId;
+        this.riderName = fullName(riderFirstName, riderLastName);
+        this.driverId = driverId;
+        this.driverName = fullName(driverFirstName, driverLastName);
+        this.cabId = cabId;
+        this.cabLicensePlate = cabLicensePlate;
+        this.cabType = cabType;
+    }
+
+    public static BookingResponse from(Booking booking) {
+        Rider rider = booking.getRider();
+        Driver driver = booking.getDriver();
+        Cab cab = booking.getCab();
+        Location pickup = booking.getPickupLocation();
+        Location dropoff = booking.getDropoffLocation();
+        return new BookingResponse(booking.getId(), booking.getStatus(), booking.getRequestedCabType(),
+                pickup.getLatitude(), pickup.getLongitude(), pickup.getAddress(),
+                dropoff.getLatitude(), dropoff.getLongitude(), dropoff.getAddress(),
+                booking.getEstimatedFare(), booking.getActualFare(),
+                booking.getStartTime(), booking.getEndTime(), booking.getCreatedAt(), booking.getUpdatedAt(),
+                rider.getId(), rider.getFirstName(), rider.getLastName(),
+                driver != null ? driver.getId() : null,
+                driver != null ? driver.getFirstName() : null,
+                driver != null ? driver.getLastName() : null,
+                cab != null ? cab.getId() : null,
+                cab != null ? cab.getLicensePlate() : null,
+                cab != null ? cab.getCabType() : null);
+    }
+
+    private static String fullName(String firstName, String lastName) {
+        return firstName == null ? null : firstName + " " + lastName;
+    }
+}
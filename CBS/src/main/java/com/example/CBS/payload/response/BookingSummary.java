@@ -0,0 +1,28 @@
+// BookingSummary
+package com.example.CBS.payload.response;
+
+import com.example.CBS.model.Booking;
+import com.example.CBS.model.Cab;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Flat row for booking history lists, selected directly by JPQL constructor expressions (no entity loading)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingSummary {
+    private Long id;
+    private Booking.BookingStatus status;
+    private Cab.CabType requestedCabType;
+    private String pickupAddress;
+    private String dropoffAddress;
+    private BigDecimal estimatedFare;
+    private BigDecimal actualFare;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private LocalDateTime createdAt;
+}
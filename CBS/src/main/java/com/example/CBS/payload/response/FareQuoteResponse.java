@@ -0,0 +1,18 @@
+// FareQuoteResponse
+package com.example.CBS.payload.response;
+
+import com.example.CBS.model.Cab;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FareQuoteResponse {
+    private Cab.CabType cabType;
+    private BigDecimal estimatedFare;
+    private double surgeMultiplier;
+}
@@ -0,0 +1,46 @@
+//In-process stand-in for the payment provider so the payment flow runs end to end offline.
+package com.example.CBS.payment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Active with app.payments.gateway=local (the default). Simulates provider latency and a configurable
+ * share of transient failures so the outbox retry path is exercised, and returns the same transaction id
+ * for a repeated reference like a real provider's idempotency support would.
+ */
+@Component
+@ConditionalOnProperty(name = "app.payments.gateway", havingValue = "local", matchIfMissing = true)
+public class LocalPaymentGateway implements PaymentGateway {
+
+    private final Map<String, String> charges = new ConcurrentHashMap<>();
+
+    @Value("${app.payments.local.latency-ms:50}")
+    private long latencyMs;
+
+    @Value("${app.payments.local.failure-rate:0.0}")
+    private double failureRate;
+
+    @Override
+    public String createCharge(String reference, BigDecimal amount, String currency) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new PaymentGatewayException("Local gateway: simulated timeout for " + reference);
+        }
+        return charges.computeIfAbsent(reference, ref -> "LOCAL-" + UUID.randomUUID());
+    }
+
+    @Override
+    public String name() {
+        return "LOCAL_MOCK";
+    }
+}
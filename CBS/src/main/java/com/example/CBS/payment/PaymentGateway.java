@@ -0,0 +1,23 @@
+//Boundary to the external payment provider; the outbox worker is its only caller.
+package com.example.CBS.payment;
+
+import java.math.BigDecimal;
+
+public interface PaymentGateway {
+
+    /**
+     * Registers a charge with the provider and returns its transaction id. The reference is stable across
+     * retries of the same charge so the provider can de-duplicate them.
+     *
+     * @throws PaymentGatewayException if the provider rejected the charge or could not be reached
+     */
+    String createCharge(String reference, BigDecimal amount, String currency);
+
+    String name(); // Stored as Payment.paymentMethod
+
+    class PaymentGatewayException extends RuntimeException {
+        public PaymentGatewayException(String message) {
+            super(message);
+        }
+    }
+}
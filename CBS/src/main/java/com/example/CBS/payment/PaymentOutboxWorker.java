@@ -0,0 +1,192 @@
+//Drains the payment outbox: creates gateway charges and payment rows in batches, with retry and backoff.
+package com.example.CBS.payment;
+
+import com.example.CBS.model.Payment;
+import com.example.CBS.model.Payment.PaymentStatus;
+import com.example.CBS.model.PaymentOutboxEntry;
+import com.example.CBS.model.PaymentOutboxEntry.OutboxStatus;
+import com.example.CBS.repository.BookingRepository;
+import com.example.CBS.repository.PaymentOutboxRepository;
+import com.example.CBS.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ride completion only inserts a payment_outbox row in the projection transaction; everything that is
+ * slow or can fail happens here, off that path. Each round:
+ * <ol>
+ *     <li>claims due entries and leases them by pushing next_attempt_at forward (short transaction),</li>
+ *     <li>calls the gateway for all of them concurrently, outside any transaction,</li>
+ *     <li>writes the payment rows and the entries' outcome in one transaction.</li>
+ * </ol>
+ * A failed call is retried with exponential backoff and jitter until app.payments.outbox.max-attempts.
+ * If an instance dies mid-round its lease simply expires and another instance retries; the gateway sees
+ * the same reference again and payments.booking_id is unique, so no charge or row is duplicated.
+ */
+@Component
+public class PaymentOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentOutboxWorker.class);
+
+    private final PaymentOutboxRepository outboxRepository;
+    private final PaymentRepository paymentRepository;
+    private final BookingRepository bookingRepository;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService gatewayCalls = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${app.payments.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.payments.outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.payments.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.payments.outbox.backoff-base-ms:1000}")
+    private long backoffBaseMs;
+
+    @Value("${app.payments.outbox.backoff-max-ms:600000}")
+    private long backoffMaxMs;
+
+    @Value("${app.payments.currency:USD}")
+    private String currency;
+
+    public PaymentOutboxWorker(PaymentOutboxRepository outboxRepository,
+                               PaymentRepository paymentRepository,
+                               BookingRepository bookingRepository,
+                               PaymentGateway paymentGateway,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.paymentRepository = paymentRepository;
+        this.bookingRepository = bookingRepository;
+        this.paymentGateway = paymentGateway;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PreDestroy
+    public void stop() {
+        gatewayCalls.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.payments.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        try {
+            int claimed;
+            do {
+                List<PaymentOutboxEntry> entries = transactionTemplate.execute(status -> claim());
+                claimed = entries == null ? 0 : entries.size();
+                if (claimed > 0) {
+                    List<Attempt> attempts = callGateway(entries);
+                    transactionTemplate.executeWithoutResult(status -> record(attempts));
+                }
+            } while (claimed == batchSize);
+        } catch (RuntimeException e) {
+            logger.error("Payment outbox round failed, retrying on next tick: {}", e.getMessage());
+        }
+    }
+
+    // --- Private Helper Methods ---
+
+    private List<PaymentOutboxEntry> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PaymentOutboxEntry> entries = outboxRepository.claimDue(now, batchSize);
+        entries.forEach(entry -> entry.setNextAttemptAt(now.plusNanos(leaseMs * 1_000_000)));
+        return entries;
+    }
+
+    private List<Attempt> callGateway(List<PaymentOutboxEntry> entries) {
+        List<CompletableFuture<Attempt>> calls = new ArrayList<>(entries.size());
+        for (PaymentOutboxEntry entry : entries) {
+            calls.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    String transactionId = paymentGateway.createCharge("booking-" + entry.getBookingId(), entry.getAmount(), currency);
+                    return new Attempt(entry.getId(), entry.getBookingId(), entry.getAmount(), transactionId, null);
+                } catch (RuntimeException e) {
+                    return new Attempt(entry.getId(), entry.getBookingId(), entry.getAmount(), null, e.getMessage());
+                }
+            }, gatewayCalls));
+        }
+        return calls.stream().map(CompletableFuture::join).toList();
+    }
+
+    private void record(List<Attempt> attempts) {
+        Map<Long, PaymentOutboxEntry> entries = outboxRepository.findAllById(attempts.stream().map(Attempt::outboxId).toList())
+                .stream()
+                .collect(Collectors.toMap(PaymentOutboxEntry::getId, Function.identity()));
+        Set<Long> alreadyPaid = paymentRepository.findByBookingIdIn(attempts.stream().map(Attempt::bookingId).toList())
+                .stream()
+                .map(payment -> payment.getBooking().getId())
+                .collect(Collectors.toSet());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Payment> payments = new ArrayList<>();
+        for (Attempt attempt : attempts) {
+            PaymentOutboxEntry entry = entries.get(attempt.outboxId());
+            entry.setAttempts(entry.getAttempts() + 1);
+            if (attempt.transactionId() != null) {
+                if (!alreadyPaid.contains(attempt.bookingId())) {
+                    payments.add(newPayment(attempt, now));
+                }
+                entry.setStatus(OutboxStatus.DONE);
+                entry.setLastError(null);
+                meterRegistry.counter("payments.outbox.attempts", "outcome", "created").increment();
+            } else if (entry.getAttempts() >= maxAttempts) {
+                entry.setStatus(OutboxStatus.FAILED);
+                entry.setLastError(attempt.error());
+                meterRegistry.counter("payments.outbox.attempts", "outcome", "gave_up").increment();
+                logger.error("Giving up on payment for booking {} after {} attempts: {}",
+                        attempt.bookingId(), entry.getAttempts(), attempt.error());
+            } else {
+                entry.setNextAttemptAt(now.plusNanos(backoffMs(entry.getAttempts()) * 1_000_000));
+                entry.setLastError(attempt.error());
+                meterRegistry.counter("payments.outbox.attempts", "outcome", "retry").increment();
+            }
+        }
+        paymentRepository.saveAll(payments);
+    }
+
+    private Payment newPayment(Attempt attempt, LocalDateTime now) {
+        Payment payment = new Payment();
+        payment.setBooking(bookingRepository.getReferenceById(attempt.bookingId())); // Proxy, no load
+        payment.setAmount(attempt.amount());
+        payment.setCurrency(currency);
+        payment.setStatus(PaymentStatus.PENDING); // Until the gateway's callback settles it
+        payment.setPaymentMethod(paymentGateway.name());
+        payment.setTransactionId(attempt.transactionId());
+        payment.setPaymentDate(now);
+        return payment;
+    }
+
+    // Exponential with equal jitter: half the delay is fixed, half random, so failed batches spread out
+    private long backoffMs(int attempts) {
+        long delay = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private record Attempt(Long outboxId, Long bookingId, BigDecimal amount, String transactionId, String error) {
+    }
+}
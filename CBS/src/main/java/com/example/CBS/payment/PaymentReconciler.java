@@ -0,0 +1,330 @@
+//Nightly and on-demand reconciliation of PENDING/FAILED payments against the gateway's settlement file.
+package com.example.CBS.payment;
+
+import com.example.CBS.model.Payment.PaymentStatus;
+import com.example.CBS.model.ReconciliationCheckpoint;
+import com.example.CBS.model.ReconciliationMismatch;
+import com.example.CBS.model.ReconciliationRun;
+import com.example.CBS.model.ReconciliationRun.RunStatus;
+import com.example.CBS.repository.ReconciliationCheckpointRepository;
+import com.example.CBS.repository.ReconciliationMismatchRepository;
+import com.example.CBS.repository.ReconciliationRunRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A run compares every PENDING or FAILED payment with the settlement file and records a
+ * {@link ReconciliationMismatch} where they disagree. It never changes payments itself.
+ * <p>
+ * Scale: payments are never loaded as a whole. The id space is cut into app.payments.reconciliation.partitions
+ * ranges that a dedicated fork-join pool works through in parallel, each range as keyset chunks of
+ * chunk-size rows read with plain JDBC. The settlement file is memory-mapped ({@link SettlementFileIndex}).
+ * <p>
+ * Checkpointing: each range has a {@link ReconciliationCheckpoint}. A chunk locks it, compares the rows after
+ * its last_payment_id, inserts the chunk's mismatches and advances the checkpoint in one transaction, so a
+ * crash loses at most the chunk in flight. Triggering the same settlement file again resumes the unfinished
+ * run instead of starting over; a completed file is not reconciled twice.
+ */
+@Component
+public class PaymentReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciler.class);
+
+    private static final String CHUNK_SQL =
+            "SELECT id, transaction_id, status, amount, payment_date FROM payments " +
+            "WHERE id > ? AND id <= ? AND status IN ('PENDING', 'FAILED') ORDER BY id LIMIT ?";
+    private static final String INSERT_MISMATCH_SQL =
+            "INSERT INTO reconciliation_mismatches (run_id, payment_id, transaction_id, kind, our_status, gateway_status, " +
+            "our_amount, gateway_amount) VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING"; // Only conflict: uk_reconciliation_mismatches_run_payment
+
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationCheckpointRepository checkpointRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path settlementDir;
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payment-reconciliation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.payments.reconciliation.partitions:64}")
+    private int partitions;
+
+    @Value("${app.payments.reconciliation.parallelism:4}")
+    private int parallelism; // Keep well below the connection pool size
+
+    @Value("${app.payments.reconciliation.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.payments.reconciliation.pending-grace-hours:24}")
+    private long pendingGraceHours;
+
+    public PaymentReconciler(ReconciliationRunRepository runRepository,
+                             ReconciliationCheckpointRepository checkpointRepository,
+                             ReconciliationMismatchRepository mismatchRepository,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${app.payments.reconciliation.settlement-dir:settlements}") String settlementDir) {
+        this.runRepository = runRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.settlementDir = Path.of(settlementDir).toAbsolutePath().normalize();
+    }
+
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+    }
+
+    // Yesterday's settlement file, e.g. settlement-2024-05-31.csv
+    @Scheduled(cron = "${app.payments.reconciliation.cron:0 0 4 * * *}")
+    public void reconcileYesterday() {
+        String fileName = "settlement-" + LocalDate.now().minusDays(1) + ".csv";
+        if (!Files.isRegularFile(settlementDir.resolve(fileName))) {
+            logger.warn("No settlement file {} in {}, skipping nightly reconciliation", fileName, settlementDir);
+            return;
+        }
+        try {
+            start(fileName);
+        } catch (RuntimeException e) {
+            logger.error("Nightly reconciliation of {} not started: {}", fileName, e.getMessage());
+        }
+    }
+
+    /**
+     * Starts (or resumes) reconciling the given settlement file in the background and returns its run.
+     *
+     * @throws IllegalArgumentException if the file is not in the settlement directory
+     * @throws IllegalStateException    if a reconciliation is already running on this instance
+     */
+    public ReconciliationRun start(String fileName) {
+        Path file = settlementFile(fileName);
+        if (!busy.compareAndSet(false, true)) {
+            throw new IllegalStateException("A payment reconciliation is already running.");
+        }
+        try {
+            ReconciliationRun run = prepareRun(fileName);
+            if (run.getStatus() != RunStatus.RUNNING) {
+                busy.set(false);
+                return run;
+            }
+            runner.execute(() -> {
+                try {
+                    execute(run, file);
+                } finally {
+                    busy.set(false);
+                }
+            });
+            return run;
+        } catch (RuntimeException e) {
+            busy.set(false);
+            throw e;
+        }
+    }
+
+    public ReconciliationRun getRun(Long runId) {
+        return runRepository.findById(runId)
+                .orElseThrow(() -> new RuntimeException("Reconciliation run not found with ID: " + runId));
+    }
+
+    // Keyset page of a run's mismatches, for review
+    public List<ReconciliationMismatch> getMismatches(Long runId, long afterId, int size) {
+        return mismatchRepository.findByRunIdAndIdGreaterThanOrderById(runId, afterId, Limit.of(Math.min(Math.max(size, 1), 1000)));
+    }
+
+    // --- Private Helper Methods ---
+
+    private void execute(ReconciliationRun run, Path file) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long startNanos = System.nanoTime();
+            SettlementFileIndex settlements = SettlementFileIndex.open(file);
+            logger.info("Reconciliation run {}: indexed {} settlement lines of {}", run.getId(), settlements.size(), file.getFileName());
+
+            List<ReconciliationCheckpoint> checkpoints = checkpointRepository.findByRunIdOrderByPartitionIndex(run.getId());
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (ReconciliationCheckpoint checkpoint : checkpoints) {
+                if (!checkpoint.isDone()) {
+                    tasks.add(ForkJoinTask.adapt(() -> reconcilePartition(run, checkpoint.getId(), settlements)));
+                }
+            }
+            pool.submit(() -> ForkJoinTask.invokeAll(tasks)).get();
+
+            finishRun(run.getId(), RunStatus.COMPLETED);
+            logger.info("Reconciliation run {} completed in {} ms", run.getId(), (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (IOException | ExecutionException | RuntimeException e) {
+            // Checkpoints stay where they are; triggering the same file again resumes from them
+            finishRun(run.getId(), RunStatus.FAILED);
+            logger.error("Reconciliation run {} failed: {}", run.getId(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Shutting down; the run stays RUNNING and resumes on the next trigger
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private ReconciliationRun prepareRun(String fileName) {
+        return transactionTemplate.execute(status -> {
+            ReconciliationRun latest = runRepository.findTopBySettlementFileOrderByIdDesc(fileName).orElse(null);
+            if (latest != null && latest.getStatus() == RunStatus.COMPLETED) {
+                return latest; // Already reconciled
+            }
+            if (latest != null) {
+                latest.setStatus(RunStatus.RUNNING); // Resume from the checkpoints of the interrupted run
+                latest.setFinishedAt(null);
+                return latest;
+            }
+
+            ReconciliationRun run = new ReconciliationRun();
+            run.setSettlementFile(fileName);
+            run.setStatus(RunStatus.RUNNING);
+            run.setStartedAt(LocalDateTime.now());
+            run.setPendingCutoff(LocalDateTime.now().minusHours(pendingGraceHours));
+            run = runRepository.save(run);
+            createCheckpoints(run.getId());
+            return run;
+        });
+    }
+
+    private void createCheckpoints(Long runId) {
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM payments");
+        long minId = bounds.get("min_id") == null ? 0 : ((Number) bounds.get("min_id")).longValue();
+        long maxId = bounds.get("max_id") == null ? 0 : ((Number) bounds.get("max_id")).longValue();
+        long span = Math.max(1, (maxId - minId + partitions) / partitions);
+
+        List<ReconciliationCheckpoint> checkpoints = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            long rangeStart = minId - 1 + partition * span; // Exclusive
+            if (partition > 0 && rangeStart >= maxId) {
+                break;
+            }
+            long rangeEnd = partition == partitions - 1 ? maxId : Math.min(maxId, rangeStart + span);
+            checkpoints.add(new ReconciliationCheckpoint(null, runId, partition, rangeEnd, rangeStart, 0, 0, false));
+        }
+        checkpointRepository.saveAll(checkpoints);
+    }
+
+    private void reconcilePartition(ReconciliationRun run, Long checkpointId, SettlementFileIndex settlements) {
+        Boolean more;
+        do {
+            more = transactionTemplate.execute(status -> reconcileChunk(run, checkpointId, settlements));
+        } while (Boolean.TRUE.equals(more));
+    }
+
+    // Returns whether the partition has rows left
+    private boolean reconcileChunk(ReconciliationRun run, Long checkpointId, SettlementFileIndex settlements) {
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findWithLockById(checkpointId)
+                .orElseThrow(() -> new RuntimeException("Reconciliation checkpoint not found with ID: " + checkpointId));
+        if (checkpoint.isDone()) {
+            return false; // Finished by another instance resuming the same run
+        }
+
+        List<PaymentRow> rows = jdbcTemplate.query(CHUNK_SQL, (rs, rowNum) -> new PaymentRow(
+                        rs.getLong("id"),
+                        rs.getString("transaction_id"),
+                        PaymentStatus.valueOf(rs.getString("status")),
+                        rs.getBigDecimal("amount"),
+                        rs.getTimestamp("payment_date")),
+                checkpoint.getLastPaymentId(), checkpoint.getRangeEnd(), chunkSize);
+
+        List<ReconciliationMismatch> mismatches = new ArrayList<>();
+        for (PaymentRow row : rows) {
+            ReconciliationMismatch mismatch = compare(run, row, row.transactionId() == null ? null : settlements.find(row.transactionId()));
+            if (mismatch != null) {
+                mismatches.add(mismatch);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_MISMATCH_SQL, mismatches, chunkSize, (ps, m) -> {
+            ps.setLong(1, m.getRunId());
+            ps.setLong(2, m.getPaymentId());
+            ps.setString(3, m.getTransactionId());
+            ps.setString(4, m.getKind().name());
+            ps.setString(5, m.getOurStatus().name());
+            ps.setString(6, m.getGatewayStatus() == null ? null : m.getGatewayStatus().name());
+            ps.setBigDecimal(7, m.getOurAmount());
+            ps.setBigDecimal(8, m.getGatewayAmount());
+        });
+
+        checkpoint.setPaymentsChecked(checkpoint.getPaymentsChecked() + rows.size());
+        checkpoint.setMismatches(checkpoint.getMismatches() + mismatches.size());
+        if (rows.size() < chunkSize) {
+            checkpoint.setLastPaymentId(checkpoint.getRangeEnd());
+            checkpoint.setDone(true);
+        } else {
+            checkpoint.setLastPaymentId(rows.get(rows.size() - 1).id());
+        }
+        return !checkpoint.isDone();
+    }
+
+    private ReconciliationMismatch compare(ReconciliationRun run, PaymentRow row, SettlementFileIndex.SettlementRecord settled) {
+        if (settled == null) {
+            boolean overdue = row.status() == PaymentStatus.PENDING && row.paymentDate() != null
+                    && row.paymentDate().toLocalDateTime().isBefore(run.getPendingCutoff());
+            return overdue ? mismatch(run, row, ReconciliationMismatch.Kind.MISSING_AT_GATEWAY, null, null) : null;
+        }
+        if (settled.status() != row.status()) {
+            return mismatch(run, row, ReconciliationMismatch.Kind.STATUS, settled.status(), settled.amount());
+        }
+        if (row.amount() != null && row.amount().compareTo(settled.amount()) != 0) {
+            return mismatch(run, row, ReconciliationMismatch.Kind.AMOUNT, settled.status(), settled.amount());
+        }
+        return null;
+    }
+
+    private static ReconciliationMismatch mismatch(ReconciliationRun run, PaymentRow row, ReconciliationMismatch.Kind kind,
+                                                   PaymentStatus gatewayStatus, BigDecimal gatewayAmount) {
+        return new ReconciliationMismatch(null, run.getId(), row.id(), row.transactionId(), kind, row.status(),
+                gatewayStatus, row.amount(), gatewayAmount);
+    }
+
+    private void finishRun(Long runId, RunStatus status) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            ReconciliationRun run = getRun(runId);
+            List<ReconciliationCheckpoint> checkpoints = checkpointRepository.findByRunIdOrderByPartitionIndex(runId);
+            run.setPaymentsChecked(checkpoints.stream().mapToLong(ReconciliationCheckpoint::getPaymentsChecked).sum());
+            run.setMismatches(checkpoints.stream().mapToLong(ReconciliationCheckpoint::getMismatches).sum());
+            run.setStatus(status);
+            run.setFinishedAt(LocalDateTime.now());
+        });
+    }
+
+    private Path settlementFile(String fileName) {
+        Path file = settlementDir.resolve(fileName).normalize();
+        if (!file.getParent().equals(settlementDir) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Settlement file not available: " + fileName);
+        }
+        return file;
+    }
+
+    private record PaymentRow(long id, String transactionId, PaymentStatus status, BigDecimal amount, Timestamp paymentDate) {
+    }
+}
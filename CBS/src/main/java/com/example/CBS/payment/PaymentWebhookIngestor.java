@@ -0,0 +1,193 @@
+//Queues payment gateway callbacks on receipt and applies them to payments in batches.
+package com.example.CBS.payment;
+
+import com.example.CBS.model.Payment;
+import com.example.CBS.model.Payment.PaymentStatus;
+import com.example.CBS.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The callback endpoint only validates and enqueues, so a settlement burst costs no database work on the
+ * request path and is acknowledged with 202. When the queue is full the endpoint answers 503 and the
+ * gateway's own redelivery provides the backpressure.
+ * <p>
+ * A scheduled flush applies up to app.payments.webhooks.batch-size callbacks per transaction:
+ * <ul>
+ *     <li>payments are loaded with one {@code transaction_id IN (...)} query,</li>
+ *     <li>each gateway event id is recorded in idempotency_records with one JDBC batch; an id that is
+ *     already there is a redelivery and is skipped,</li>
+ *     <li>status changes only ever move forward (see {@link PaymentStatus#canAdvanceTo}), so a late or
+ *     reordered delivery cannot regress a payment.</li>
+ * </ul>
+ * A callback can overtake the payment row it refers to (the outbox worker writes it after the gateway
+ * call returns), so callbacks for unknown transactions are requeued for a few rounds before being dropped.
+ * Acknowledged callbacks that are still queued when the process dies are lost; reconciliation against the
+ * gateway's settlement report repairs those payments.
+ */
+@Component
+public class PaymentWebhookIngestor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentWebhookIngestor.class);
+
+    private static final String EVENT_SCOPE = "payment-callback";
+    private static final String RECORD_EVENT_SQL =
+            "INSERT INTO idempotency_records (scope, idempotency_key, resource_id, created_at) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (scope, idempotency_key) DO NOTHING";
+
+    private final PaymentRepository paymentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<WebhookEvent> queue;
+
+    @Value("${app.payments.webhooks.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.payments.webhooks.max-requeues:30}")
+    private int maxRequeues;
+
+    public PaymentWebhookIngestor(PaymentRepository paymentRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.payments.webhooks.queue-capacity:50000}") int queueCapacity) {
+        this.paymentRepository = paymentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        meterRegistry.gaugeCollectionSize("payments.webhooks.queued", List.of(), queue);
+    }
+
+    /**
+     * Validates and queues one callback. Returns false if the queue is full and the gateway should retry later.
+     *
+     * @throws IllegalArgumentException for an unknown status or an over-long event id
+     */
+    public boolean accept(String eventId, String transactionId, String status, String payerId) {
+        if (eventId.isBlank() || eventId.length() > 64) {
+            throw new IllegalArgumentException("Gateway event id must be 1 to 64 characters.");
+        }
+        PaymentStatus newStatus;
+        try {
+            newStatus = PaymentStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown payment status: " + status);
+        }
+        return queue.offer(new WebhookEvent(eventId, transactionId, newStatus, payerId, LocalDateTime.now(), 0));
+    }
+
+    @Scheduled(fixedDelayString = "${app.payments.webhooks.flush-interval-ms:200}")
+    public void flush() {
+        List<WebhookEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                List<WebhookEvent> unmatched = transactionTemplate.execute(status -> applyBatch(batch));
+                if (unmatched != null) {
+                    unmatched.forEach(this::requeue);
+                }
+            } catch (RuntimeException e) {
+                // Nothing of the batch was committed; put it back and retry on the next tick
+                batch.forEach(this::requeue);
+                logger.error("Failed to apply {} payment callbacks: {}", batch.size(), e.getMessage());
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // --- Private Helper Methods ---
+
+    // Returns the callbacks whose payment does not exist yet
+    private List<WebhookEvent> applyBatch(List<WebhookEvent> batch) {
+        // First delivery of each event id within the batch, in arrival order
+        Map<String, WebhookEvent> events = new LinkedHashMap<>();
+        batch.forEach(event -> events.putIfAbsent(event.eventId(), event));
+
+        Map<String, Payment> payments = paymentRepository.findByTransactionIdIn(
+                        events.values().stream().map(WebhookEvent::transactionId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Payment::getTransactionId, Function.identity()));
+
+        List<WebhookEvent> unmatched = new ArrayList<>();
+        List<WebhookEvent> matched = new ArrayList<>();
+        for (WebhookEvent event : events.values()) {
+            (payments.containsKey(event.transactionId()) ? matched : unmatched).add(event);
+        }
+
+        // Durable de-duplication: an update count of 0 means the event id was applied before
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] inserted = jdbcTemplate.batchUpdate(RECORD_EVENT_SQL, matched, batchSize, (ps, event) -> {
+            ps.setString(1, EVENT_SCOPE);
+            ps.setString(2, event.eventId());
+            ps.setLong(3, payments.get(event.transactionId()).getId());
+            ps.setTimestamp(4, now);
+        });
+
+        int index = 0;
+        for (int[] chunk : inserted) {
+            for (int count : chunk) {
+                WebhookEvent event = matched.get(index++);
+                if (count == 0) {
+                    meterRegistry.counter("payments.webhooks.events", "outcome", "duplicate").increment();
+                    continue;
+                }
+                apply(payments.get(event.transactionId()), event);
+            }
+        }
+        return unmatched; // Changed payments are written by dirty checking on commit
+    }
+
+    private void apply(Payment payment, WebhookEvent event) {
+        if (!payment.getStatus().canAdvanceTo(event.status())) {
+            meterRegistry.counter("payments.webhooks.events", "outcome", "stale").increment();
+            return;
+        }
+        payment.setStatus(event.status());
+        if (event.status() == PaymentStatus.COMPLETED) {
+            payment.setPayerId(event.payerId()); // Store payer ID if provided by gateway
+            payment.setPaymentDate(event.receivedAt());
+        }
+        meterRegistry.counter("payments.webhooks.events", "outcome", "applied").increment();
+    }
+
+    private void requeue(WebhookEvent event) {
+        if (event.requeues() >= maxRequeues || !queue.offer(event.retried())) {
+            meterRegistry.counter("payments.webhooks.events", "outcome", "dropped").increment();
+            logger.warn("Dropping payment callback {} for transaction {}", event.eventId(), event.transactionId());
+            return;
+        }
+        meterRegistry.counter("payments.webhooks.events", "outcome", "requeued").increment();
+    }
+
+    private record WebhookEvent(String eventId, String transactionId, PaymentStatus status, String payerId,
+                                LocalDateTime receivedAt, int requeues) {
+        WebhookEvent retried() {
+            return new WebhookEvent(eventId, transactionId, status, payerId, receivedAt, requeues + 1);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+//Read-only, memory-mapped index over a gateway settlement file for lookups by transaction id.
+package com.example.CBS.payment;
+
+import com.example.CBS.model.Payment.PaymentStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Settlement files are CSV lines of {@code transaction_id,status,amount} (an optional header line is
+ * skipped; a later line for the same transaction wins). They can hold tens of millions of lines, so
+ * nothing is parsed into objects up front: the file is mapped into memory in line-aligned segments of
+ * up to 2 GB and the only heap structure is one open-addressing {@code long[]} of about 11 bytes per line.
+ * Each slot packs a 24-bit hash fingerprint with the file offset of its line; a lookup parses just the
+ * line(s) it lands on. After construction the index is immutable and safe for concurrent lookups.
+ */
+public final class SettlementFileIndex {
+
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+    private static final long OFFSET_MASK = (1L << 40) - 1;
+
+    private final long[] segmentStarts;
+    private final MappedByteBuffer[] segments;
+    private final int[] segmentLimits;
+    private final long[] slots; // 0 = empty, otherwise fingerprint << 40 | (line offset + 1)
+    private int size;
+
+    private SettlementFileIndex(List<Long> starts, List<MappedByteBuffer> buffers, List<Integer> limits, long lines) {
+        this.segmentStarts = starts.stream().mapToLong(Long::longValue).toArray();
+        this.segments = buffers.toArray(MappedByteBuffer[]::new);
+        this.segmentLimits = limits.stream().mapToInt(Integer::intValue).toArray();
+        long capacity = Math.max(16, lines * 4 / 3 + 1); // Load factor 0.75
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Settlement file has too many lines: " + lines);
+        }
+        this.slots = new long[(int) capacity];
+    }
+
+    public static SettlementFileIndex open(Path file) throws IOException {
+        List<Long> starts = new ArrayList<>();
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        List<Integer> limits = new ArrayList<>();
+        long lines = 0;
+        // Mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                long length = Math.min(MAX_SEGMENT_BYTES, fileSize - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int limit = (int) length;
+                if (position + length < fileSize) {
+                    // End the segment after its last complete line so no line straddles two segments
+                    while (limit > 0 && buffer.get(limit - 1) != '\n') {
+                        limit--;
+                    }
+                    if (limit == 0) {
+                        throw new IOException("Settlement file line longer than " + MAX_SEGMENT_BYTES + " bytes");
+                    }
+                }
+                for (int i = 0; i < limit; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lines++;
+                    }
+                }
+                starts.add(position);
+                buffers.add(buffer);
+                limits.add(limit);
+                position += limit;
+            }
+            if (fileSize > 0 && buffers.get(buffers.size() - 1).get(limits.get(limits.size() - 1) - 1) != '\n') {
+                lines++; // Last line without a trailing newline
+            }
+        }
+
+        SettlementFileIndex index = new SettlementFileIndex(starts, buffers, limits, lines);
+        index.build();
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the settlement line for the transaction, or null if the gateway did not report it.
+     */
+    public SettlementRecord find(String transactionId) {
+        byte[] key = transactionId.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        for (int slot = slotOf(hash); ; slot = slot + 1 == slots.length ? 0 : slot + 1) {
+            long entry = slots[slot];
+            if (entry == 0) {
+                return null;
+            }
+            if (entry >>> 40 == fingerprint(hash)) {
+                long offset = (entry & OFFSET_MASK) - 1;
+                int segment = segmentOf(offset);
+                int start = (int) (offset - segmentStarts[segment]);
+                if (idEquals(segment, start, key)) {
+                    return parse(segment, start);
+                }
+            }
+        }
+    }
+
+    public record SettlementRecord(String transactionId, PaymentStatus status, BigDecimal amount) {
+    }
+
+    // --- Private Helper Methods ---
+
+    private void build() {
+        for (int segment = 0; segment < segments.length; segment++) {
+            MappedByteBuffer buffer = segments[segment];
+            int limit = segmentLimits[segment];
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                int idEnd = idEnd(segment, start);
+                boolean header = segment == 0 && start == 0 && startsWith(buffer, start, idEnd, "transaction_id");
+                if (idEnd > start && !header) {
+                    insert(segment, start, idEnd);
+                }
+                start = end + 1;
+            }
+        }
+    }
+
+    private void insert(int segment, int start, int idEnd) {
+        long hash = hash(segments[segment], start, idEnd);
+        long entry = fingerprint(hash) << 40 | (segmentStarts[segment] + start + 1);
+        for (int slot = slotOf(hash); ; slot = slot + 1 == slots.length ? 0 : slot + 1) {
+            long existing = slots[slot];
+            if (existing == 0) {
+                slots[slot] = entry;
+                size++;
+                return;
+            }
+            if (existing >>> 40 == fingerprint(hash) && sameId(existing, segment, start, idEnd)) {
+                slots[slot] = entry; // Later line for the same transaction supersedes the earlier one
+                return;
+            }
+        }
+    }
+
+    private boolean sameId(long existing, int segment, int start, int idEnd) {
+        long offset = (existing & OFFSET_MASK) - 1;
+        int otherSegment = segmentOf(offset);
+        int otherStart = (int) (offset - segmentStarts[otherSegment]);
+        int length = idEnd - start;
+        if (idEnd(otherSegment, otherStart) - otherStart != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (segments[segment].get(start + i) != segments[otherSegment].get(otherStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean idEquals(int segment, int start, byte[] key) {
+        if (idEnd(segment, start) - start != key.length) {
+            return false;
+        }
+        MappedByteBuffer buffer = segments[segment];
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private SettlementRecord parse(int segment, int start) {
+        MappedByteBuffer buffer = segments[segment];
+        int limit = segmentLimits[segment];
+        int end = start;
+        while (end < limit && buffer.get(end) != '\n') {
+            end++;
+        }
+        byte[] line = new byte[end - start];
+        buffer.get(start, line); // Absolute bulk get: does not touch the shared buffer position
+        String[] fields = new String(line, StandardCharsets.UTF_8).trim().split(",");
+        if (fields.length < 3) {
+            throw new IllegalStateException("Malformed settlement line: " + Arrays.toString(fields));
+        }
+        return new SettlementRecord(fields[0].trim(), PaymentStatus.valueOf(fields[1].trim().toUpperCase()),
+                new BigDecimal(fields[2].trim()));
+    }
+
+    private int idEnd(int segment, int start) {
+        MappedByteBuffer buffer = segments[segment];
+        int limit = segmentLimits[segment];
+        int end = start;
+        while (end < limit) {
+            byte b = buffer.get(end);
+            if (b == ',' || b == '\n' || b == '\r') {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    private int segmentOf(long offset) {
+        int found = Arrays.binarySearch(segmentStarts, offset);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private int slotOf(long hash) {
+        return (int) (((hash >>> 32) * slots.length) >>> 32); // Range reduction without a power-of-two table
+    }
+
+    static long fingerprint(long hash) {
+        return (hash & 0xFFFFFF) | 1; // Never 0, so an entry is never mistaken for an empty slot
+    }
+
+    private static boolean startsWith(MappedByteBuffer buffer, int start, int end, String prefix) {
+        if (end - start != prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer.get(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a, finished with a 64-bit mix so both the slot and the fingerprint bits are well spread.
+    // Package-private, like fingerprint, so tests can build colliding ids
+    static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long hash(MappedByteBuffer buffer, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h = (h ^ (buffer.get(i) & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,62 @@
+//Immutable surge multiplier per geo cell, looked up on every fare quote without boxing the cell key.
+package com.example.CBS.pricing;
+
+import java.util.Map;
+
+/**
+ * Open-addressing table of primitive cell keys and multipliers, at most half full, built once per recompute
+ * tick and published whole, so readers need no synchronization. Stored multipliers are always positive,
+ * so a zero multiplier marks an empty entry and every long is a valid cell key.
+ */
+final class CellMultipliers {
+
+    static final CellMultipliers EMPTY = new CellMultipliers(Map.of());
+
+    private final long[] keys;
+    private final double[] values;
+    private final int size;
+
+    CellMultipliers(Map<Long, Double> multipliers) {
+        int tableSize = Integer.highestOneBit(Math.max(1, multipliers.size()) * 2 - 1) << 1;
+        keys = new long[tableSize];
+        values = new double[tableSize];
+        int mask = tableSize - 1;
+        for (Map.Entry<Long, Double> entry : multipliers.entrySet()) {
+            double multiplier = entry.getValue();
+            if (!(multiplier > 0)) {
+                throw new IllegalArgumentException("Multiplier must be positive: " + multiplier);
+            }
+            int i = mix(entry.getKey()) & mask;
+            while (values[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = entry.getKey();
+            values[i] = multiplier;
+        }
+        size = multipliers.size();
+    }
+
+    double get(long cell, double defaultValue) {
+        int mask = keys.length - 1;
+        for (int i = mix(cell) & mask; ; i = (i + 1) & mask) {
+            double value = values[i];
+            if (value == 0) {
+                return defaultValue;
+            }
+            if (keys[i] == cell) {
+                return value;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // --- Private Helper Methods ---
+
+    private static int mix(long cell) {
+        long h = cell * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,63 @@
+//Fare estimation used by ride requests. Kept free of persistence so it can be reused and benchmarked.
+package com.example.CBS.pricing;
+
+import com.example.CBS.geo.GeoUtils;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Location;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Fares are computed in cents with {@link Money} so the hot path does no allocation; the BigDecimal
+ * variants only convert the result for entities and responses.
+ */
+@Component
+public class FareCalculator {
+
+    private static final long BASE_FARE_CENTS = Money.cents(10, 0);
+    private static final long DEFAULT_RATE_CENTS_PER_KM = Money.cents(2, 0);
+
+    private final SurgePricingEngine surgePricingEngine;
+
+    public FareCalculator(SurgePricingEngine surgePricingEngine) {
+        this.surgePricingEngine = surgePricingEngine;
+    }
+
+    public BigDecimal estimateFare(Location pickup, Location dropoff, Cab.CabType cabType) {
+        return Money.toDecimal(estimateFareCents(pickup, dropoff, cabType));
+    }
+
+    public long estimateFareCents(Location pickup, Location dropoff, Cab.CabType cabType) {
+        return applySurge(baseFareCents(pickup, dropoff, cabType), surgeMultiplier(pickup));
+    }
+
+    // Fare before surge; depends only on the route and cab type, so callers may cache it
+    public long baseFareCents(Location pickup, Location dropoff, Cab.CabType cabType) {
+        // Simple fare calculation: distance based (placeholder)
+        // In a real app: complex logic with actual distance API, time of day, etc.
+        double distance = GeoUtils.distanceKm(pickup, dropoff);
+        return BASE_FARE_CENTS + Money.perKm(ratePerKmCents(cabType), distance);
+    }
+
+    // Surge is looked up by pickup cell from the last background recompute
+    public double surgeMultiplier(Location pickup) {
+        return surgePricingEngine.multiplierFor(pickup.getLatitude(), pickup.getLongitude());
+    }
+
+    public long applySurge(long fareCents, double surgeMultiplier) {
+        return surgeMultiplier > 1.0 ? Money.multiply(fareCents, surgeMultiplier) : fareCents;
+    }
+
+    // --- Private Helper Methods ---
+
+    // Adjust rate based on cab type
+    private static long ratePerKmCents(Cab.CabType cabType) {
+        return switch (cabType) {
+            case SEDAN -> Money.cents(2, 50);
+            case SUV -> Money.cents(3, 50);
+            case LUXURY -> Money.cents(5, 0);
+            default -> DEFAULT_RATE_CENTS_PER_KM;
+        };
+    }
+}
@@ -0,0 +1,70 @@
+//Read-only fare quotes for the rider app, served from memory without creating a booking.
+package com.example.CBS.pricing;
+
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Location;
+import com.example.CBS.payload.response.FareQuoteResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Riders move the pin around and the app re-quotes on every refresh, so the pre-surge fare is cached
+ * per (pickup cell, dropoff cell, cab type). Cells are app.quote.cell-size-deg wide (about 110 m by
+ * default), which is well below the precision of the placeholder distance model. Surge is applied after
+ * the cache lookup so a quote always reflects the current multiplier. Fares stay in cents until the response.
+ */
+@Service
+public class FareQuoteService {
+
+    private final FareCalculator fareCalculator;
+    private final double cellSizeDeg;
+    private final Cache<QuoteKey, Long> baseFares;
+    private final Timer quoteTimer;
+
+    public FareQuoteService(FareCalculator fareCalculator,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.quote.cell-size-deg:0.001}") double cellSizeDeg,
+                            @Value("${app.quote.cache-size:100000}") long cacheSize,
+                            @Value("${app.quote.cache-ttl-ms:60000}") long cacheTtlMs) {
+        this.fareCalculator = fareCalculator;
+        this.cellSizeDeg = cellSizeDeg;
+        this.baseFares = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .recordStats()
+                .build();
+        // Exposes cache.gets{result=hit|miss}, cache.size and cache.evictions tagged cache=fare.quote
+        CaffeineCacheMetrics.monitor(meterRegistry, baseFares, "fare.quote");
+        this.quoteTimer = Timer.builder("fare.quote.latency")
+                .description("Time to produce a fare quote")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public FareQuoteResponse quote(Location pickup, Location dropoff, Cab.CabType cabType) {
+        return quoteTimer.record(() -> {
+            QuoteKey key = new QuoteKey(cellOf(pickup.getLatitude()), cellOf(pickup.getLongitude()),
+                    cellOf(dropoff.getLatitude()), cellOf(dropoff.getLongitude()), cabType);
+            long baseFareCents = baseFares.get(key, k -> fareCalculator.baseFareCents(pickup, dropoff, cabType));
+            double surge = fareCalculator.surgeMultiplier(pickup);
+            long fareCents = fareCalculator.applySurge(baseFareCents, surge);
+            return new FareQuoteResponse(cabType, Money.toDecimal(fareCents), surge);
+        });
+    }
+
+    // --- Private Helper Methods ---
+
+    private int cellOf(double degrees) {
+        return (int) Math.floor(degrees / cellSizeDeg);
+    }
+
+    private record QuoteKey(int pickupLat, int pickupLon, int dropoffLat, int dropoffLon, Cab.CabType cabType) {
+    }
+}
@@ -0,0 +1,62 @@
+//Fixed-point money in cents (long minor units) for the fare engine; BigDecimal only at the persistence/JSON boundary.
+package com.example.CBS.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts are held as a long count of cents, matching the scale of 2 used by every money column
+ * (precision 10, scale 2). All rounding is HALF_UP to whole cents, the same rule applied when a
+ * BigDecimal is set to scale 2, so converting a result with {@link #toDecimal} is exact and persisting
+ * it changes nothing. None of the arithmetic here allocates.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    // Distances are fixed to whole millimetres (1e-6 km), far below anything that moves a fare by a cent
+    private static final long MICRO_KM_PER_KM = 1_000_000L;
+    private static final long BASIS_POINTS = 10_000L;
+
+    private Money() {
+    }
+
+    public static long cents(long units, int cents) {
+        return Math.addExact(Math.multiplyExact(units, 100L), cents);
+    }
+
+    // Rate per km times a distance, rounded HALF_UP to a cent
+    public static long perKm(long centsPerKm, double distanceKm) {
+        long microKm = Math.round(distanceKm * MICRO_KM_PER_KM);
+        return divideHalfUp(Math.multiplyExact(centsPerKm, microKm), MICRO_KM_PER_KM);
+    }
+
+    // Scales by a multiplier such as surge; the multiplier is taken to 4 decimals (basis points) first
+    public static long multiply(long cents, double multiplier) {
+        long basisPoints = Math.round(multiplier * BASIS_POINTS);
+        return divideHalfUp(Math.multiplyExact(cents, basisPoints), BASIS_POINTS);
+    }
+
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    public static long fromDecimal(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount must not be null");
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // --- Private Helper Methods ---
+
+    // Integer division rounding half away from zero, like RoundingMode.HALF_UP
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
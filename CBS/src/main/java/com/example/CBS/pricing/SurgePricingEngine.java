@@ -0,0 +1,125 @@
+//Surge multipliers per geo cell, derived from recent ride requests versus available drivers.
+package com.example.CBS.pricing;
+
+import com.example.CBS.geo.DriverSpatialIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The request path only touches lock-free counters: {@link #recordDemand} bumps a per-cell LongAdder and
+ * {@link #multiplierFor} is a single lookup in an immutable snapshot keyed by primitive cell ids, so it does
+ * not box. Everything else happens on the scheduled {@link #recompute()} tick, which rolls the demand counters
+ * into a sliding window of buckets, counts available drivers per cell from the spatial index and publishes
+ * a new multiplier snapshot.
+ */
+@Component
+public class SurgePricingEngine {
+
+    private final DriverSpatialIndex driverIndex;
+
+    @Value("${app.surge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.surge.cell-size-deg:0.05}")
+    private double cellSizeDeg;
+
+    @Value("${app.surge.window-buckets:10}")
+    private int windowBuckets;
+
+    // Demand/supply ratio at which surge starts, and how steeply it rises above that
+    @Value("${app.surge.ratio-threshold:1.0}")
+    private double ratioThreshold;
+
+    @Value("${app.surge.sensitivity:0.5}")
+    private double sensitivity;
+
+    @Value("${app.surge.max-multiplier:3.0}")
+    private double maxMultiplier;
+
+    // Requests since the last tick; drained by recompute(). An increment racing the drain may be dropped,
+    // which is fine for a statistical signal
+    private final ConcurrentHashMap<Long, LongAdder> currentDemand = new ConcurrentHashMap<>();
+    // Per-cell ring of closed buckets; only touched by the recompute thread
+    private final Map<Long, long[]> demandWindows = new HashMap<>();
+    private int bucketCursor;
+
+    // Cells without an entry have no surge
+    private volatile CellMultipliers multipliers = CellMultipliers.EMPTY;
+
+    public SurgePricingEngine(DriverSpatialIndex driverIndex) {
+        this.driverIndex = driverIndex;
+    }
+
+    public void recordDemand(double latitude, double longitude) {
+        if (enabled) {
+            currentDemand.computeIfAbsent(cellKey(latitude, longitude), cell -> new LongAdder()).increment();
+        }
+    }
+
+    public double multiplierFor(double latitude, double longitude) {
+        if (!enabled) {
+            return 1.0;
+        }
+        return multipliers.get(cellKey(latitude, longitude), 1.0);
+    }
+
+    // One tick closes one bucket, so the window spans window-buckets * bucket-ms
+    @Scheduled(fixedRateString = "${app.surge.bucket-ms:30000}")
+    public synchronized void recompute() {
+        if (!enabled) {
+            return;
+        }
+        bucketCursor = (bucketCursor + 1) % windowBuckets;
+        demandWindows.values().forEach(window -> window[bucketCursor] = 0);
+        for (Long cell : currentDemand.keySet()) {
+            LongAdder adder = currentDemand.remove(cell);
+            if (adder != null) {
+                demandWindows.computeIfAbsent(cell, c -> new long[windowBuckets])[bucketCursor] += adder.sum();
+            }
+        }
+
+        Map<Long, Integer> supply = new HashMap<>();
+        driverIndex.forEachMatchable(null, 0, 0, (driverId, cabId, cabType, latitude, longitude, capacity, rating) ->
+                supply.merge(cellKey(latitude, longitude), 1, Integer::sum));
+
+        Map<Long, Double> next = new HashMap<>();
+        demandWindows.entrySet().removeIf(entry -> {
+            long demand = 0;
+            for (long bucket : entry.getValue()) {
+                demand += bucket;
+            }
+            if (demand == 0) {
+                return true; // Cell has been quiet for the whole window
+            }
+            double ratio = (double) demand / Math.max(1, supply.getOrDefault(entry.getKey(), 0));
+            double multiplier = toMultiplier(ratio);
+            if (multiplier > 1.0) {
+                next.put(entry.getKey(), multiplier);
+            }
+            return false;
+        });
+        multipliers = new CellMultipliers(next);
+    }
+
+    // --- Private Helper Methods ---
+
+    private double toMultiplier(double ratio) {
+        if (ratio <= ratioThreshold) {
+            return 1.0;
+        }
+        double raw = Math.min(maxMultiplier, 1.0 + sensitivity * (ratio - ratioThreshold));
+        return Math.round(raw * 10.0) / 10.0; // 0.1 steps, so small fluctuations don't move the price
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        long latIndex = (long) Math.floor((latitude + 90.0) / cellSizeDeg);
+        long lonIndex = (long) Math.floor((longitude + 180.0) / cellSizeDeg);
+        return (latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+}
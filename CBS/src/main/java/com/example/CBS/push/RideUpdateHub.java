@@ -0,0 +1,222 @@
+//In-memory publish/subscribe topic per booking, delivered to riders and drivers over Server-Sent Events.
+package com.example.CBS.push;
+
+import com.example.CBS.model.Booking.BookingStatus;
+import com.example.CBS.service.AfterCommit;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Replaces polling GET /api/bookings/{id}. An idle subscriber is only an SseEmitter in a list: the servlet
+ * request is async, so no thread is held between events. Each subscriber has its own bounded queue drained
+ * in order by at most one virtual thread at a time, so events reach a client in publish order (snapshot
+ * first) and a slow or dead client never delays the publisher or the other subscribers. A client that
+ * falls app.push.max-queued-events behind is dropped; on reconnect it gets a fresh snapshot.
+ * <p>
+ * Subscriptions are local to this instance; with several instances behind a load balancer the stream
+ * should be routed by booking id (or fed from a shared broker instead of direct publish calls).
+ */
+@Component
+public class RideUpdateHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(RideUpdateHub.class);
+
+    private static final Set<BookingStatus> ACTIVE_RIDE = Set.of(BookingStatus.ACCEPTED, BookingStatus.ARRIVED, BookingStatus.STARTED);
+
+    private final ConcurrentHashMap<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    // Driver of each ride that is under way, so location pings can be routed to the ride's topic
+    private final ConcurrentHashMap<Long, Long> activeRideByDriver = new ConcurrentHashMap<>();
+    // Reverse of activeRideByDriver, so ending a ride doesn't scan every driver
+    private final ConcurrentHashMap<Long, Long> driverByActiveRide = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${app.push.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.push.max-queued-events:64}")
+    private int maxQueuedEvents;
+
+    public RideUpdateHub(MeterRegistry meterRegistry) {
+        Gauge.builder("push.connections", this, RideUpdateHub::connectionCount)
+                .description("Open ride update streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for the booking and immediately sends it the current state, so a client that
+     * (re)connects never misses where the ride is.
+     */
+    public SseEmitter subscribe(Long bookingId, Object snapshot, Long driverId, BookingStatus status) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(bookingId, emitter);
+        // Queued before the subscriber becomes visible to publishers, so the snapshot is always its first event
+        subscriber.enqueue(SseEmitter.event().name("booking").data(snapshot));
+        subscribers.computeIfAbsent(bookingId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+        Runnable unsubscribe = () -> removeSubscriber(subscriber);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        trackRide(bookingId, driverId, status);
+        return emitter;
+    }
+
+    // Status changes are pushed only once the transaction that made them has committed
+    public void publishStatusAfterCommit(Long bookingId, BookingStatus status, Long driverId) {
+        AfterCommit.run(() -> {
+            trackRide(bookingId, driverId, status);
+            publish(bookingId, "status", new RideStatusUpdate(bookingId, status, LocalDateTime.now()));
+        });
+    }
+
+    public void publishDriverLocation(Long driverId, double latitude, double longitude) {
+        Long bookingId = activeRideByDriver.get(driverId);
+        if (bookingId != null) {
+            publish(bookingId, "location", new DriverLocationUpdate(bookingId, latitude, longitude, LocalDateTime.now()));
+        }
+    }
+
+    // Keeps idle connections from being dropped by proxies and load balancers
+    @Scheduled(fixedRateString = "${app.push.heartbeat-ms:20000}")
+    public void heartbeat() {
+        subscribers.values().forEach(topic ->
+                topic.forEach(subscriber -> subscriber.enqueue(SseEmitter.event().comment("keepalive"))));
+    }
+
+    public int connectionCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(topic -> topic.forEach(subscriber -> subscriber.emitter.complete()));
+        sender.shutdownNow();
+    }
+
+    // --- Private Helper Methods ---
+
+    private void publish(Long bookingId, String eventName, Object payload) {
+        List<Subscriber> topic = subscribers.get(bookingId);
+        if (topic == null) {
+            return;
+        }
+        for (Subscriber subscriber : topic) {
+            subscriber.enqueue(SseEmitter.event().name(eventName).data(payload));
+        }
+    }
+
+    private void removeSubscriber(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.bookingId, (id, topic) -> {
+            topic.remove(subscriber);
+            return topic.isEmpty() ? null : topic;
+        });
+    }
+
+    private void trackRide(Long bookingId, Long driverId, BookingStatus status) {
+        if (ACTIVE_RIDE.contains(status)) {
+            if (driverId != null) {
+                activeRideByDriver.put(driverId, bookingId);
+                driverByActiveRide.put(bookingId, driverId);
+            }
+        } else if (status != BookingStatus.PENDING) {
+            Long rideDriverId = driverByActiveRide.remove(bookingId);
+            if (rideDriverId != null) {
+                activeRideByDriver.remove(rideDriverId, bookingId); // Ride over: stop routing the driver's pings
+            }
+        }
+    }
+
+    // One stream: events are queued in publish order and sent by a single drain at a time
+    private final class Subscriber {
+        final Long bookingId;
+        final SseEmitter emitter;
+        private final ArrayDeque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+
+        Subscriber(Long bookingId, SseEmitter emitter) {
+            this.bookingId = bookingId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            boolean overflow;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                overflow = queue.size() >= maxQueuedEvents;
+                if (overflow) {
+                    closed = true;
+                    queue.clear();
+                } else {
+                    queue.add(event);
+                    if (draining) {
+                        return; // The running drain picks it up, after everything queued before it
+                    }
+                    draining = true;
+                }
+            }
+            if (overflow) {
+                drop(new IOException("Client is more than " + maxQueuedEvents + " events behind"));
+            } else {
+                sender.execute(this::drain);
+            }
+        }
+
+        // The emitter is only touched here, never by two threads at once; the monitor is not held while sending
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = queue.poll();
+                    if (event == null || closed) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    synchronized (this) {
+                        closed = true;
+                        queue.clear();
+                        draining = false;
+                    }
+                    drop(e);
+                    return;
+                }
+            }
+        }
+
+        // Client went away or fell behind; drop it rather than keep writing into a dead connection
+        private void drop(Exception e) {
+            removeSubscriber(this);
+            emitter.completeWithError(e);
+            logger.debug("Dropped ride update stream for booking {}: {}", bookingId, e.getMessage());
+        }
+    }
+
+    public record RideStatusUpdate(Long bookingId, BookingStatus status, LocalDateTime at) {
+    }
+
+    public record DriverLocationUpdate(Long bookingId, double latitude, double longitude, LocalDateTime at) {
+    }
+}
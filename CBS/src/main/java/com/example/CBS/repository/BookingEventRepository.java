@@ -0,0 +1,21 @@
+package com.example.CBS.repository;
+
+import com.example.CBS.model.BookingEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BookingEventRepository extends JpaRepository<BookingEvent, Long> {
+    List<BookingEvent> findByBookingIdOrderBySequenceNumber(Long bookingId);
+    Optional<BookingEvent> findTopByBookingIdOrderBySequenceNumberDesc(Long bookingId);
+
+    // Oldest events not yet applied to the bookings table; SKIP LOCKED lets several instances project in parallel
+    @Query(value = "SELECT * FROM booking_events WHERE projected = false ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<BookingEvent> claimUnprojected(@Param("limit") int limit);
+}
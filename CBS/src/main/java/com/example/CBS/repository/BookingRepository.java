@@ -4,18 +4,150 @@ import com.example.CBS.model.Booking;
 import com.example.CBS.model.Booking.BookingStatus;
 import com.example.CBS.model.Driver;
 import com.example.CBS.model.Rider;
+import com.example.CBS.payload.response.BookingResponse;
+import com.example.CBS.payload.response.BookingSummary;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findByRiderOrderByCreatedAtDesc(Rider rider);
-    List<Booking> findByDriverOrderByCreatedAtDesc(Driver driver);
+
+    String SUMMARY_SELECT = "SELECT new com.example.CBS.payload.response.BookingSummary(b.id, b.status, b.requestedCabType, " +
+            "b.pickupLocation.address, b.dropoffLocation.address, b.estimatedFare, b.actualFare, b.startTime, b.endTime, b.createdAt) " +
+            "FROM Booking b ";
+    // Joins instead of lazy loads: one statement however many bookings are returned
+    String RESPONSE_SELECT = "SELECT new com.example.CBS.payload.response.BookingResponse(b.id, b.status, b.requestedCabType, " +
+            "b.pickupLocation.latitude, b.pickupLocation.longitude, b.pickupLocation.address, " +
+            "b.dropoffLocation.latitude, b.dropoffLocation.longitude, b.dropoffLocation.address, " +
+            "b.estimatedFare, b.actualFare, b.startTime, b.endTime, b.createdAt, b.updatedAt, " +
+            "r.id, r.firstName, r.lastName, d.id, d.firstName, d.lastName, c.id, c.licensePlate, c.cabType) " +
+            "FROM Booking b JOIN b.rider r LEFT JOIN b.driver d LEFT JOIN b.cab c ";
+    String BEFORE_CURSOR = "(b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id))";
+
     Optional<Booking> findByIdAndRider(Long id, Rider rider);
     Optional<Booking> findByIdAndDriver(Long id, Driver driver);
     List<Booking> findByStatus(BookingStatus status);
     List<Booking> findByStatusAndDriverIsNull(BookingStatus status); // For finding pending bookings without a driver
+
+    // Fetch plan for single-booking endpoints that modify the booking and return it
+    @EntityGraph(attributePaths = {"rider", "driver", "cab"})
+    Optional<Booking> findDetailedById(Long id);
+
+    @Query(RESPONSE_SELECT + "WHERE b.id = :id")
+    Optional<BookingResponse> findResponseById(@Param("id") Long id);
+
+    // --- Keyset-paginated history, newest first, ordered by (created_at, id) to match the composite indexes ---
+
+    @Query(SUMMARY_SELECT + "WHERE b.rider.id = :riderId ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findRiderHistory(@Param("riderId") Long riderId, Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE b.rider.id = :riderId AND " + BEFORE_CURSOR + " ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findRiderHistoryBefore(@Param("riderId") Long riderId, @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE b.driver.id = :driverId ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findDriverHistory(@Param("driverId") Long driverId, Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE b.driver.id = :driverId AND " + BEFORE_CURSOR + " ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findDriverHistoryBefore(@Param("driverId") Long driverId, @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id, Limit limit);
+
+    @Query(SUMMARY_SELECT + "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findAllHistory(Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE " + BEFORE_CURSOR + " ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findAllHistoryBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Booking> findWithLockById(Long id);
+
+    // Read by the projector instead of entities, so nothing it loads can be flushed back over a concurrent update
+    @Query("SELECT b.id AS id, b.status AS status, b.projectedSequence AS projectedSequence, b.driver.id AS driverId " +
+            "FROM Booking b WHERE b.id IN :ids")
+    List<ProjectionState> findProjectionStates(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b.id FROM Booking b WHERE b.rider.id = :riderId AND b.idempotencyKey = :key")
+    Optional<Long> findIdByRiderIdAndIdempotencyKey(@Param("riderId") Long riderId, @Param("key") String key);
+
+    // --- Conditional updates used by the dispatch engine; each returns 1 only if the booking was in the expected state ---
+    // The declared query space keeps Hibernate from clearing every second-level cache region on these native updates.
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bookings"))
+    @Query(value = "UPDATE bookings SET driver_id = :driverId, cab_id = :cabId, updated_at = :now " +
+            "WHERE id = :bookingId AND status = 'PENDING' AND driver_id IS NULL", nativeQuery = true)
+    int assignOffer(@Param("bookingId") Long bookingId, @Param("driverId") Long driverId,
+                    @Param("cabId") Long cabId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bookings"))
+    @Query(value = "UPDATE bookings SET driver_id = NULL, cab_id = NULL, updated_at = :now " +
+            "WHERE id = :bookingId AND driver_id = :driverId AND status = 'PENDING'", nativeQuery = true)
+    int withdrawOffer(@Param("bookingId") Long bookingId, @Param("driverId") Long driverId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bookings"))
+    @Query(value = "UPDATE bookings SET status = 'ACCEPTED', updated_at = :now " +
+            "WHERE id = :bookingId AND driver_id = :driverId AND status = 'PENDING'", nativeQuery = true)
+    int acceptOffer(@Param("bookingId") Long bookingId, @Param("driverId") Long driverId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bookings"))
+    @Query(value = "UPDATE bookings SET status = 'NO_DRIVER_FOUND', updated_at = :now " +
+            "WHERE id = :bookingId AND status = 'PENDING' AND driver_id IS NULL", nativeQuery = true)
+    int markNoDriverFound(@Param("bookingId") Long bookingId, @Param("now") LocalDateTime now);
+
+    // --- Projection of booking events (see BookingProjector); each returns 1 only if no other event was applied meanwhile ---
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bookings"))
+    @Query(value = "UPDATE bookings SET projected_sequence = :next " +
+            "WHERE id = :bookingId AND coalesce(projected_sequence, 0) = :expected", nativeQuery = true)
+    int advanceProjection(@Param("bookingId") Long bookingId, @Param("expected") int expected, @Param("next") int next);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bookings"))
+    @Query(value = "UPDATE bookings SET projected_sequence = :next, status = :status, updated_at = :now " +
+            "WHERE id = :bookingId AND coalesce(projected_sequence, 0) = :expected", nativeQuery = true)
+    int projectStatus(@Param("bookingId") Long bookingId, @Param("expected") int expected, @Param("next") int next,
+                      @Param("status") String status, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bookings"))
+    @Query(value = "UPDATE bookings SET projected_sequence = :next, status = 'STARTED', start_time = :startTime, updated_at = :now " +
+            "WHERE id = :bookingId AND coalesce(projected_sequence, 0) = :expected", nativeQuery = true)
+    int projectStarted(@Param("bookingId") Long bookingId, @Param("expected") int expected, @Param("next") int next,
+                       @Param("startTime") LocalDateTime startTime, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "bookings"))
+    @Query(value = "UPDATE bookings SET projected_sequence = :next, status = 'COMPLETED', end_time = :endTime, " +
+            "actual_fare = :actualFare, updated_at = :now " +
+            "WHERE id = :bookingId AND coalesce(projected_sequence, 0) = :expected", nativeQuery = true)
+    int projectCompleted(@Param("bookingId") Long bookingId, @Param("expected") int expected, @Param("next") int next,
+                         @Param("endTime") LocalDateTime endTime, @Param("actualFare") BigDecimal actualFare,
+                         @Param("now") LocalDateTime now);
+
+    interface ProjectionState {
+        Long getId();
+        BookingStatus getStatus();
+        Integer getProjectedSequence();
+        Long getDriverId(); // Null while no driver holds the booking
+    }
 }
@@ -1,9 +1,14 @@
 package com.example.CBS.repository;
 
+import com.example.CBS.geo.IndexedDriver;
 import com.example.CBS.model.Cab;
 import com.example.CBS.model.Cab.CabType;
 import com.example.CBS.model.Driver;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,7 +17,20 @@ import java.util.Optional;
 @Repository
 public interface CabRepository extends JpaRepository<Cab, Long> {
     Optional<Cab> findByLicensePlate(String licensePlate);
+
+    // Query cache: results are invalidated by Hibernate whenever a Cab is written through JPA (CabService)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Cab> findByIsActiveTrue();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Cab> findByCabTypeAndIsActiveTrue(CabType cabType);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Cab> findByDriver(Driver driver);
+
+    // Scalar projection used to warm up the driver spatial index without loading Driver/User graphs
+    @Query("select new com.example.CBS.geo.IndexedDriver(d.id, c.id, c.cabType, d.currentLocation.latitude, " +
+            "d.currentLocation.longitude, d.isAvailable, c.isActive, c.capacity, d.rating) " +
+            "from Cab c join c.driver d where c.isActive = true and d.isAvailable = true")
+    List<IndexedDriver> findMatchableDrivers();
 }
@@ -1,7 +1,13 @@
 package com.example.CBS.repository;
 
 import com.example.CBS.model.Driver;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,7 +15,26 @@ import java.util.Optional;
 
 @Repository
 public interface DriverRepository extends JpaRepository<Driver, Long> {
+    String AVAILABILITY_SPACE = "driver_availability";
+
     Optional<Driver> findByLicenseNumber(String licenseNumber);
     List<Driver> findByIsAvailableTrue(); // Find available drivers
     List<Driver> findByRatingGreaterThanEqual(Double rating); // Find drivers above a certain rating
+
+    // Compare-and-set on is_available: returns 1 only for the single caller that wins the driver.
+    // SKIP LOCKED makes a caller racing on a row another transaction is claiming give up immediately
+    // instead of waiting, so it can move on to its next candidate.
+    // Native updates: without declared query spaces Hibernate would clear every second-level cache region.
+    // The space below matches no cached entity; callers evict the one driver via EntityCacheEvictor instead.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = AVAILABILITY_SPACE))
+    @Query(value = "UPDATE drivers SET is_available = false WHERE user_id = " +
+            "(SELECT user_id FROM drivers WHERE user_id = :driverId AND is_available = true FOR UPDATE SKIP LOCKED)",
+            nativeQuery = true)
+    int claimIfAvailable(@Param("driverId") Long driverId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = AVAILABILITY_SPACE))
+    @Query(value = "UPDATE drivers SET is_available = true WHERE user_id = :driverId", nativeQuery = true)
+    int release(@Param("driverId") Long driverId);
 }
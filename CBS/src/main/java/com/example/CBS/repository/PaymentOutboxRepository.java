@@ -0,0 +1,19 @@
+package com.example.CBS.repository;
+
+import com.example.CBS.model.PaymentOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PaymentOutboxRepository extends JpaRepository<PaymentOutboxEntry, Long> {
+
+    // Due entries, oldest first; SKIP LOCKED lets several instances drain the outbox in parallel
+    @Query(value = "SELECT * FROM payment_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PaymentOutboxEntry> claimDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -1,16 +1,17 @@
 package com.example.CBS.repository;
 
 import com.example.CBS.model.Payment;
-import com.example.CBS.model.Payment.PaymentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByTransactionId(String transactionId);
-    List<Payment> findByStatus(PaymentStatus status);
+    List<Payment> findByTransactionIdIn(Collection<String> transactionIds);
     Optional<Payment> findByBookingId(Long bookingId);
+    List<Payment> findByBookingIdIn(Collection<Long> bookingIds);
 }
@@ -0,0 +1,19 @@
+package com.example.CBS.repository;
+
+import com.example.CBS.model.ReconciliationCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpoint, Long> {
+    List<ReconciliationCheckpoint> findByRunIdOrderByPartitionIndex(Long runId);
+
+    // Serializes chunks of one partition, e.g. when two instances resume the same run
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ReconciliationCheckpoint> findWithLockById(Long id);
+}
@@ -0,0 +1,12 @@
+package com.example.CBS.repository;
+
+import com.example.CBS.model.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+    Optional<ReconciliationRun> findTopBySettlementFileOrderByIdDesc(String settlementFile);
+}
@@ -1,6 +1,8 @@
 package com.example.CBS.security.jwt;
 
-import com.example.CBS.security.services.UserDetailsServiceImpl;
+import com.example.CBS.security.services.JwtPrincipalResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,17 +17,23 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final JwtPrincipalResolver principalResolver;
+    private final Timer validTokenTimer;
+    private final Timer invalidTokenTimer;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
-    public AuthTokenFilter(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService) {
+    public AuthTokenFilter(JwtUtils jwtUtils, JwtPrincipalResolver principalResolver, MeterRegistry meterRegistry) {
         this.jwtUtils = jwtUtils;
-        this.userDetailsService = userDetailsService;
+        this.principalResolver = principalResolver;
+        this.validTokenTimer = verifyTimer(meterRegistry, "valid");
+        this.invalidTokenTimer = verifyTimer(meterRegistry, "invalid");
     }
 
     @Override
@@ -33,10 +41,10 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            Optional<JwtClaims> claims = jwt != null ? verify(jwt) : Optional.empty();
+            Optional<UserDetails> principal = claims.flatMap(principalResolver::resolve);
+            if (principal.isPresent()) {
+                UserDetails userDetails = principal.get();
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -53,6 +61,22 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Covers verified-token cache hits as well as full signature checks
+    private Optional<JwtClaims> verify(String jwt) {
+        long startNanos = System.nanoTime();
+        Optional<JwtClaims> claims = jwtUtils.verifyJwtToken(jwt);
+        (claims.isPresent() ? validTokenTimer : invalidTokenTimer).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        return claims;
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.jwt.verify")
+                .description("Time to verify the bearer token of a request")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -0,0 +1,23 @@
+//Typed view of the claims of a verified JWT.
+package com.example.CBS.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.List;
+
+public record JwtClaims(String username, Long userId, String email, List<String> roles, Instant issuedAt, Instant expiresAt) {
+
+    @SuppressWarnings("unchecked")
+    static JwtClaims from(Claims claims) {
+        List<String> roles = claims.get("roles", List.class);
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.get("id", Long.class),
+                claims.get("email", String.class),
+                roles != null ? List.copyOf(roles) : List.of(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration().toInstant()
+        );
+    }
+}
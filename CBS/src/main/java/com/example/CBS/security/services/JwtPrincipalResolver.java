@@ -0,0 +1,66 @@
+//Turns verified JWT claims into the authenticated principal, with or without a database lookup.
+package com.example.CBS.security.services;
+
+import com.example.CBS.security.jwt.JwtClaims;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Two modes, selected with app.security.principal-source:
+ * <ul>
+ *     <li>claims (default): the principal is built from the id/email/roles claims of the token, so an
+ *     authenticated request costs no SQL. Revoked users are filtered by {@link TokenRevocationRegistry}.</li>
+ *     <li>database: the user is loaded via {@link UserDetailsServiceImpl}, optionally through a short-TTL cache
+ *     (app.security.principal-cache-ttl-ms, 0 disables it).</li>
+ * </ul>
+ */
+@Component
+public class JwtPrincipalResolver {
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final boolean fromClaims;
+    private final Cache<String, UserDetails> principalCache;
+
+    public JwtPrincipalResolver(UserDetailsServiceImpl userDetailsService,
+                                TokenRevocationRegistry revocationRegistry,
+                                @Value("${app.security.principal-source:claims}") String principalSource,
+                                @Value("${app.security.principal-cache-ttl-ms:0}") long principalCacheTtlMs,
+                                @Value("${app.security.principal-cache-size:10000}") long principalCacheSize) {
+        this.userDetailsService = userDetailsService;
+        this.revocationRegistry = revocationRegistry;
+        this.fromClaims = "claims".equalsIgnoreCase(principalSource);
+        this.principalCache = principalCacheTtlMs > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(principalCacheSize)
+                        .expireAfterWrite(Duration.ofMillis(principalCacheTtlMs))
+                        .build()
+                : null;
+    }
+
+    public Optional<UserDetails> resolve(JwtClaims claims) {
+        if (revocationRegistry.isRevoked(claims)) {
+            return Optional.empty();
+        }
+        if (fromClaims && claims.userId() != null) {
+            return Optional.of(UserDetailsImpl.fromClaims(claims));
+        }
+        if (principalCache != null) {
+            return Optional.of(principalCache.get(claims.username(), userDetailsService::loadUserByUsername));
+        }
+        return Optional.of(userDetailsService.loadUserByUsername(claims.username()));
+    }
+
+    // Drops a cached principal so the next request reloads it (database mode only)
+    public void evict(String username) {
+        if (principalCache != null) {
+            principalCache.invalidate(username);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+//Tracks users whose outstanding tokens must no longer be accepted (deleted users, password changes).
+package com.example.CBS.security.services;
+
+import com.example.CBS.model.TokenRevocation;
+import com.example.CBS.repository.TokenRevocationRepository;
+import com.example.CBS.security.jwt.JwtClaims;
+import com.example.CBS.service.AfterCommit;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Needed because a principal built from token claims never goes back to the database.
+ * A token is rejected when it was issued before its user's revocation time. Revocations are stored in
+ * the token_revocations table and mirrored in memory, so checks stay free of SQL: the mirror is loaded
+ * at startup and refreshed periodically (app.security.revocation-refresh-interval-ms), which bounds how
+ * long a revocation made on another node takes to apply here. Entries are dropped once every token
+ * that could predate them has expired.
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    // Re-read rows slightly older than the last refresh: covers commit delay and clock skew between nodes
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final ConcurrentHashMap<Long, Instant> revokedBefore = new ConcurrentHashMap<>();
+    private final TokenRevocationRepository revocationRepository;
+    private final long jwtExpirationMs;
+    private volatile Instant lastRefresh;
+
+    public TokenRevocationRegistry(TokenRevocationRepository revocationRepository,
+                                   @Value("${app.jwt.expiration-ms}") long jwtExpirationMs) {
+        this.revocationRepository = revocationRepository;
+        this.jwtExpirationMs = jwtExpirationMs;
+    }
+
+    // Runs before the web server accepts requests, so no token is checked against an empty mirror
+    @PostConstruct
+    public void load() {
+        Instant now = Instant.now();
+        mirror(revocationRepository.findByRevokedAtAfter(now.minusMillis(jwtExpirationMs)));
+        lastRefresh = now;
+    }
+
+    // Joins the caller's transaction; this node applies the revocation once it has committed
+    public void revokeTokensOf(Long userId) {
+        // JWT iat has second precision; truncate so a token issued right after revocation stays valid
+        Instant cutoff = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        revocationRepository.save(new TokenRevocation(userId, cutoff));
+        AfterCommit.run(() -> revokedBefore.merge(userId, cutoff, TokenRevocationRegistry::later));
+    }
+
+    public boolean isRevoked(JwtClaims claims) {
+        Instant cutoff = revokedBefore.get(claims.userId());
+        return cutoff != null && (claims.issuedAt() == null || claims.issuedAt().isBefore(cutoff));
+    }
+
+    // Picks up revocations made on other nodes
+    @Scheduled(fixedDelayString = "${app.security.revocation-refresh-interval-ms:5000}")
+    public void refresh() {
+        Instant now = Instant.now();
+        mirror(revocationRepository.findByRevokedAtAfter(lastRefresh.minus(REFRESH_OVERLAP)));
+        lastRefresh = now;
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation-cleanup-interval-ms:600000}")
+    @Transactional
+    public void purgeExpired() {
+        Instant oldestLiveToken = Instant.now().minusMillis(jwtExpirationMs);
+        revokedBefore.values().removeIf(cutoff -> cutoff.isBefore(oldestLiveToken));
+        revocationRepository.deleteOlderThan(oldestLiveToken);
+    }
+
+    // --- Private Helper Methods ---
+
+    private void mirror(Iterable<TokenRevocation> revocations) {
+        for (TokenRevocation revocation : revocations) {
+            revokedBefore.merge(revocation.getUserId(), revocation.getRevokedAt(), TokenRevocationRegistry::later);
+        }
+    }
+
+    private static Instant later(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -2,6 +2,7 @@
 package com.example.CBS.security.services;
 
 import com.example.CBS.model.User;
+import com.example.CBS.security.jwt.JwtClaims;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.security.core.GrantedAuthority;
@@ -48,6 +49,20 @@ public class UserDetailsImpl implements UserDetails {
                 authorities);
     }
 
+    // Principal rebuilt from verified token claims only; no password is known or needed here
+    public static UserDetailsImpl fromClaims(JwtClaims claims) {
+        List<GrantedAuthority> authorities = claims.roles().stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role))
+                .toList();
+
+        return new UserDetailsImpl(
+                claims.userId(),
+                claims.username(),
+                claims.email(),
+                null,
+                authorities);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
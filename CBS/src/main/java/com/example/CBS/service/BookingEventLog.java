@@ -0,0 +1,68 @@
+//Appends booking lifecycle events and answers "what state is this booking in" from the log.
+package com.example.CBS.service;
+
+import com.example.CBS.model.Booking;
+import com.example.CBS.model.Booking.BookingStatus;
+import com.example.CBS.model.BookingEvent;
+import com.example.CBS.push.RideUpdateHub;
+import com.example.CBS.repository.BookingEventRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * After a driver accepts, the log is the write path: arrived/start/complete/cancel are single inserts and
+ * the bookings row is brought up to date by {@link BookingProjector}. While a booking is still being
+ * dispatched the bookings row stays authoritative (the dispatch engine writes it with conditional updates),
+ * so the REQUESTED and ACCEPTED events are recorded for the audit trail alongside those row updates.
+ */
+@Service
+public class BookingEventLog {
+
+    private final BookingEventRepository bookingEventRepository;
+    private final RideUpdateHub rideUpdateHub;
+
+    public BookingEventLog(BookingEventRepository bookingEventRepository, RideUpdateHub rideUpdateHub) {
+        this.bookingEventRepository = bookingEventRepository;
+        this.rideUpdateHub = rideUpdateHub;
+    }
+
+    public Optional<BookingEvent> latest(Long bookingId) {
+        return bookingEventRepository.findTopByBookingIdOrderBySequenceNumberDesc(bookingId);
+    }
+
+    // Current state; the row decides while dispatching (NO_DRIVER_FOUND is only ever written there)
+    public BookingStatus currentStatus(Booking booking) {
+        return latest(booking.getId())
+                .filter(event -> event.getType() != BookingEvent.EventType.REQUESTED)
+                .map(event -> event.getType().toStatus())
+                .orElse(booking.getStatus());
+    }
+
+    /**
+     * Appends the next event for the booking. Two transitions racing on the same booking compute the same
+     * sequence number; the unique key lets exactly one of them commit.
+     */
+    public BookingEvent append(Long bookingId, BookingEvent.EventType type, Long actorId, BigDecimal amount) {
+        int next = latest(bookingId).map(event -> event.getSequenceNumber() + 1).orElse(1);
+        BookingEvent event = new BookingEvent(null, bookingId, next, type, actorId, amount, LocalDateTime.now(), false);
+        try {
+            event = bookingEventRepository.saveAndFlush(event);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("Booking " + bookingId + " was changed concurrently, please retry.");
+        }
+        // Accept/arrive/start are performed by the ride's driver, which routes their location pings to the ride
+        Long driverId = type == BookingEvent.EventType.ACCEPTED || type == BookingEvent.EventType.ARRIVED
+                || type == BookingEvent.EventType.STARTED ? actorId : null;
+        rideUpdateHub.publishStatusAfterCommit(bookingId, type.toStatus(), driverId);
+        return event;
+    }
+
+    public List<BookingEvent> history(Long bookingId) {
+        return bookingEventRepository.findByBookingIdOrderBySequenceNumber(bookingId);
+    }
+}
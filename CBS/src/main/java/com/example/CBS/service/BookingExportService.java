@@ -0,0 +1,158 @@
+//Streams bookings to an admin export (NDJSON or CSV) straight from a database cursor.
+package com.example.CBS.service;
+
+import com.example.CBS.model.Booking.BookingStatus;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The export never holds more than one fetch-size worth of rows in memory. The query runs in a read-only
+ * transaction so the PostgreSQL driver uses a server-side cursor (it only honours the fetch size with
+ * auto-commit off), and every row is written to the response as soon as it is read.
+ */
+@Service
+public class BookingExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final String[] COLUMNS = {
+            "id", "status", "rider_id", "driver_id", "cab_id", "requested_cab_type",
+            "pickup_latitude", "pickup_longitude", "pickup_address",
+            "dropoff_latitude", "dropoff_longitude", "dropoff_address",
+            "estimated_fare", "actual_fare", "start_time", "end_time", "created_at", "updated_at"
+    };
+
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final JsonFactory jsonFactory;
+
+    public BookingExportService(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${app.bookings.export-fetch-size:1000}") int fetchSize) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public void export(OutputStream out, Format format, BookingStatus status, LocalDateTime from, LocalDateTime to) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", COLUMNS)).append(" FROM bookings WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND status = ?");
+            params.add(status.name());
+        }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY created_at, id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        readOnlyTransaction.executeWithoutResult(tx -> {
+            try {
+                if (format == Format.CSV) {
+                    writer.write(String.join(",", COLUMNS));
+                    writer.write('\n');
+                    cursorJdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> writeCsvRow(rs, writer), params.toArray());
+                } else {
+                    JsonGenerator json = jsonFactory.createGenerator(writer);
+                    json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    cursorJdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> writeJsonRow(rs, json, writer), params.toArray());
+                    json.close();
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Booking export aborted", e);
+            }
+        });
+    }
+
+    // --- Private Helper Methods ---
+
+    private void writeJsonRow(ResultSet rs, JsonGenerator json, Writer writer) throws SQLException {
+        try {
+            json.writeStartObject();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Object value = rs.getObject(i + 1);
+                json.writeFieldName(COLUMNS[i]);
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof Number number) {
+                    json.writeNumber(number.toString());
+                } else {
+                    json.writeString(value instanceof Timestamp ts ? ts.toLocalDateTime().toString() : value.toString());
+                }
+            }
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Booking export aborted", e); // Client went away; stops the cursor
+        }
+    }
+
+    private void writeCsvRow(ResultSet rs, Writer writer) throws SQLException {
+        try {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = rs.getObject(i + 1);
+                if (value != null) {
+                    String text = value instanceof Timestamp ts ? ts.toLocalDateTime().toString() : value.toString();
+                    // Only free text (the addresses) can carry a formula; numbers and dates stay as they are
+                    writer.write(csvEscape(value instanceof String ? neutralizeFormula(text) : text));
+                }
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Booking export aborted", e);
+        }
+    }
+
+    // A leading = + - @ (or tab/CR) makes spreadsheets evaluate the cell; a leading quote forces it to text
+    private static String neutralizeFormula(String value) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        char first = value.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r'
+                ? "'" + value : value;
+    }
+
+    private static String csvEscape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
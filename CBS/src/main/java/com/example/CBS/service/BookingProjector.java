@@ -0,0 +1,179 @@
+//Applies booking events to the bookings table and runs their side effects (payment outbox, driver release).
+package com.example.CBS.service;
+
+import com.example.CBS.dispatch.DispatchEngine;
+import com.example.CBS.geo.DriverSpatialIndex;
+import com.example.CBS.model.Booking.BookingStatus;
+import com.example.CBS.model.BookingEvent;
+import com.example.CBS.repository.BookingEventRepository;
+import com.example.CBS.repository.BookingRepository;
+import com.example.CBS.repository.BookingRepository.ProjectionState;
+import com.example.CBS.repository.DriverRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Each tick claims the oldest unprojected events and applies them in one transaction together with the
+ * flag that marks them done, so an event is applied exactly once even across restarts. Events of one
+ * booking are applied strictly in sequence order via bookings.projected_sequence; an event whose
+ * predecessor is not applied yet is simply left for a later tick. Rows are only touched through conditional
+ * native updates, never by flushing a loaded entity.
+ */
+@Component
+public class BookingProjector {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingProjector.class);
+
+    private final BookingEventRepository bookingEventRepository;
+    private final BookingRepository bookingRepository;
+    private final DriverRepository driverRepository;
+    private final DriverSpatialIndex driverIndex;
+    private final PaymentService paymentService;
+    private final DispatchEngine dispatchEngine;
+    private final EntityCacheEvictor entityCacheEvictor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.booking-events.projection-batch-size:500}")
+    private int batchSize;
+
+    public BookingProjector(BookingEventRepository bookingEventRepository,
+                            BookingRepository bookingRepository,
+                            DriverRepository driverRepository,
+                            DriverSpatialIndex driverIndex,
+                            PaymentService paymentService,
+                            DispatchEngine dispatchEngine,
+                            EntityCacheEvictor entityCacheEvictor,
+                            TransactionTemplate transactionTemplate) {
+        this.bookingEventRepository = bookingEventRepository;
+        this.bookingRepository = bookingRepository;
+        this.driverRepository = driverRepository;
+        this.driverIndex = driverIndex;
+        this.paymentService = paymentService;
+        this.dispatchEngine = dispatchEngine;
+        this.entityCacheEvictor = entityCacheEvictor;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking-events.projection-interval-ms:500}")
+    public void project() {
+        try {
+            // Stop once a batch makes no progress: events waiting on a predecessor would otherwise be re-claimed forever
+            Integer projected;
+            do {
+                projected = transactionTemplate.execute(status -> projectBatch());
+            } while (projected != null && projected > 0);
+        } catch (RuntimeException e) {
+            logger.error("Booking projection failed, retrying on next tick: {}", e.getMessage());
+        }
+    }
+
+    // --- Private Helper Methods ---
+
+    // Returns how many claimed events left the queue (applied or skipped as stale)
+    private int projectBatch() {
+        List<BookingEvent> events = bookingEventRepository.claimUnprojected(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        int projected = 0;
+        Map<Long, ProjectionState> states = bookingRepository.findProjectionStates(events.stream().map(BookingEvent::getBookingId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(ProjectionState::getId, Function.identity()));
+        // Sequence each booking is at as of this batch; absent once another projector got there first
+        Map<Long, Integer> sequences = new HashMap<>();
+        states.values().forEach(state -> sequences.put(state.getId(), state.getProjectedSequence() == null ? 0 : state.getProjectedSequence()));
+
+        for (BookingEvent event : events) {
+            ProjectionState state = states.get(event.getBookingId());
+            if (state == null) {
+                event.setProjected(true); // Booking deleted; nothing to project onto
+                projected++;
+                continue;
+            }
+            Integer projectedSequence = sequences.get(state.getId());
+            if (projectedSequence == null) {
+                continue; // Lost a race for this booking; its remaining events are re-read on the next batch
+            }
+            if (event.getSequenceNumber() <= projectedSequence) {
+                event.setProjected(true);
+                projected++;
+                continue;
+            }
+            if (event.getSequenceNumber() > projectedSequence + 1) {
+                continue; // Predecessor is still being projected elsewhere
+            }
+            if (!apply(state, event, projectedSequence)) {
+                sequences.remove(state.getId());
+                continue;
+            }
+            sequences.put(state.getId(), event.getSequenceNumber());
+            event.setProjected(true);
+            projected++;
+        }
+        return projected;
+    }
+
+    /**
+     * Advances projected_sequence from {@code expected} together with only the columns the event changes, so a
+     * concurrent dispatch update of driver_id/cab_id/status is never overwritten. Side effects run only when the
+     * update matched; returns false if the row was advanced by someone else.
+     */
+    private boolean apply(ProjectionState state, BookingEvent event, int expected) {
+        Long bookingId = state.getId();
+        int next = event.getSequenceNumber();
+        LocalDateTime now = LocalDateTime.now();
+        switch (event.getType()) {
+            case REQUESTED, ACCEPTED -> {
+                // Written to the row synchronously while dispatching; only the audit record lives here
+                return bookingRepository.advanceProjection(bookingId, expected, next) == 1;
+            }
+            case ARRIVED -> {
+                return bookingRepository.projectStatus(bookingId, expected, next, BookingStatus.ARRIVED.name(), now) == 1;
+            }
+            case STARTED -> {
+                return bookingRepository.projectStarted(bookingId, expected, next, event.getOccurredAt(), now) == 1;
+            }
+            case COMPLETED -> {
+                if (bookingRepository.projectCompleted(bookingId, expected, next, event.getOccurredAt(), event.getAmount(), now) != 1) {
+                    return false;
+                }
+                paymentService.enqueuePayment(bookingId, event.getAmount()); // Charged by PaymentOutboxWorker after commit
+                releaseDriver(state.getDriverId());
+                return true;
+            }
+            case CANCELLED -> {
+                if (state.getStatus() == BookingStatus.CANCELLED) {
+                    // Cancelled while dispatching; the row and the driver were handled synchronously
+                    return bookingRepository.advanceProjection(bookingId, expected, next) == 1;
+                }
+                if (bookingRepository.projectStatus(bookingId, expected, next, BookingStatus.CANCELLED.name(), now) != 1) {
+                    return false;
+                }
+                releaseDriver(state.getDriverId());
+                dispatchEngine.closedAfterCommit(bookingId);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void releaseDriver(Long driverId) {
+        if (driverId == null) {
+            return;
+        }
+        driverRepository.release(driverId);
+        entityCacheEvictor.evictDriver(driverId);
+        AfterCommit.run(() -> driverIndex.updateAvailability(driverId, true));
+    }
+}
@@ -2,176 +2,363 @@
 //It demonstrates complex transactional logic.
 package com.example.CBS.service;
 
+import com.example.CBS.dispatch.BatchDispatcher;
+import com.example.CBS.dispatch.DispatchEngine;
+import com.example.CBS.geo.DriverSpatialIndex;
 import com.example.CBS.model.*;
 import com.example.CBS.model.Booking.BookingStatus;
+import com.example.CBS.payload.response.BookingEventResponse;
+import com.example.CBS.payload.response.BookingPage;
+import com.example.CBS.payload.response.BookingResponse;
+import com.example.CBS.payload.response.BookingSummary;
+import com.example.CBS.pricing.FareCalculator;
+import com.example.CBS.pricing.SurgePricingEngine;
+import com.example.CBS.push.RideUpdateHub;
 import com.example.CBS.repository.BookingRepository;
 import com.example.CBS.repository.CabRepository;
 import com.example.CBS.repository.DriverRepository;
 import com.example.CBS.repository.RiderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 @Service
 public class BookingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BookingService.class);
+
     private final BookingRepository bookingRepository;
     private final RiderRepository riderRepository;
     private final DriverRepository driverRepository;
     private final CabRepository cabRepository;
     private final PaymentService paymentService; // Inject PaymentService
+    private final DriverSpatialIndex driverIndex;
+    private final FareCalculator fareCalculator;
+    private final SurgePricingEngine surgePricingEngine;
+    private final DispatchEngine dispatchEngine;
+    private final BatchDispatcher batchDispatcher;
+    private final BookingEventLog bookingEventLog;
+    private final RideUpdateHub rideUpdateHub;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.bookings.history-max-page-size:100}")
+    private int maxHistoryPageSize;
 
     public BookingService(BookingRepository bookingRepository,
                           RiderRepository riderRepository,
                           DriverRepository driverRepository,
                           CabRepository cabRepository,
-                          PaymentService paymentService) {
+                          PaymentService paymentService,
+                          DriverSpatialIndex driverIndex,
+                          FareCalculator fareCalculator,
+                          SurgePricingEngine surgePricingEngine,
+                          DispatchEngine dispatchEngine,
+                          BatchDispatcher batchDispatcher,
+                          BookingEventLog bookingEventLog,
+                          RideUpdateHub rideUpdateHub,
+                          IdempotencyStore idempotencyStore,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry) {
         this.bookingRepository = bookingRepository;
         this.riderRepository = riderRepository;
         this.driverRepository = driverRepository;
         this.cabRepository = cabRepository;
         this.paymentService = paymentService;
+        this.driverIndex = driverIndex;
+        this.fareCalculator = fareCalculator;
+        this.surgePricingEngine = surgePricingEngine;
+        this.dispatchEngine = dispatchEngine;
+        this.batchDispatcher = batchDispatcher;
+        this.bookingEventLog = bookingEventLog;
+        this.rideUpdateHub = rideUpdateHub;
+        this.idempotencyStore = idempotencyStore;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
     }
 
-    @Transactional
-    public Booking requestRide(Long riderId, Location pickup, Location dropoff, Cab.CabType preferredCabType) {
-        Rider rider = riderRepository.findById(riderId)
-                .orElseThrow(() -> new RuntimeException("Rider not found with ID: " + riderId));
-
-        // 1. Create a new booking with PENDING status
-        Booking booking = new Booking();
-        booking.setRider(rider);
-        booking.setPickupLocation(pickup);
-        booking.setDropoffLocation(dropoff);
-        booking.setStatus(BookingStatus.PENDING);
-        booking.setEstimatedFare(calculateEstimatedFare(pickup, dropoff, preferredCabType)); // Estimate fare
-        booking = bookingRepository.save(booking);
-
-        // 2. Find an available driver (simplified logic: nearest driver in real app)
-        // For demo, just pick the first available driver of preferred type
-        Optional<Driver> availableDriver = driverRepository.findByIsAvailableTrue().stream()
-                .filter(driver -> driver.getCab() != null && driver.getCab().getCabType() == preferredCabType && driver.getCab().getIsActive())
-                .findFirst();
-
-        if (availableDriver.isPresent()) {
-            Driver driver = availableDriver.get();
-            Cab cab = driver.getCab();
-
-            // 3. Assign driver and cab to booking, update status to ACCEPTED
-            booking.setDriver(driver);
-            booking.setCab(cab);
-            booking.setStatus(BookingStatus.ACCEPTED);
-            bookingRepository.save(booking);
-
-            // 4. Update driver availability (set to unavailable)
-            driver.setIsAvailable(false);
-            driverRepository.save(driver);
-
-            System.out.println("Ride requested and assigned to Driver " + driver.getUsername() + " for Rider " + rider.getUsername());
-        } else {
-            booking.setStatus(BookingStatus.NO_DRIVER_FOUND);
-            bookingRepository.save(booking);
-            throw new RuntimeException("No driver found for your request at the moment. Please try again later.");
+    /**
+     * Creates a booking and starts dispatching it. With an idempotency key, a retried request returns the
+     * booking created by the first one instead of creating and dispatching another.
+     */
+    public BookingResponse requestRide(Long riderId, Location pickup, Location dropoff, Cab.CabType preferredCabType,
+                                       String idempotencyKey) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean success = false;
+        try {
+            BookingResponse response = createOrReplayRide(riderId, pickup, dropoff, preferredCabType, idempotencyKey);
+            success = true;
+            return response;
+        } finally {
+            sample.stop(transitionTimer("request", success));
         }
-
-        return booking;
     }
 
     @Transactional
-    public Booking driverAcceptsBooking(Long bookingId, Long driverId) {
+    public BookingResponse driverAcceptsBooking(Long bookingId, Long driverId) {
+        timeTransition("accept");
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
 
-        if (!booking.getDriver().getId().equals(driverId)) {
+        if (booking.getDriver() == null || !booking.getDriver().getId().equals(driverId)) {
             throw new SecurityException("Driver is not authorized to accept this booking.");
         }
         if (booking.getStatus() != BookingStatus.PENDING) {
             throw new IllegalArgumentException("Booking is not in PENDING status.");
         }
+        // Conditional on the offer still being open, so an accept can't race the offer timeout
+        if (bookingRepository.acceptOffer(bookingId, driverId, LocalDateTime.now()) != 1) {
+            throw new IllegalStateException("The offer for this booking has expired.");
+        }
 
-        booking.setStatus(BookingStatus.ACCEPTED);
-        return bookingRepository.save(booking);
+        bookingEventLog.append(bookingId, BookingEvent.EventType.ACCEPTED, driverId, null);
+        dispatchEngine.acceptedAfterCommit(bookingId);
+        // Read back rather than setting the status on the loaded entity, whose flush would write its stale columns
+        return bookingRepository.findResponseById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
     }
 
     @Transactional
-    public Booking driverArrived(Long bookingId, Long driverId) {
+    public BookingResponse driverDeclinesBooking(Long bookingId, Long driverId) {
+        timeTransition("decline");
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
-        if (!booking.getDriver().getId().equals(driverId)) {
+
+        // The withdraw joins this transaction; the next offer goes out once it has committed
+        if (booking.getStatus() != BookingStatus.PENDING || !dispatchEngine.decline(bookingId, driverId)) {
+            throw new IllegalStateException("There is no open offer for this booking.");
+        }
+        // The withdraw is a bulk update, so read the booking back instead of patching the loaded entity
+        return bookingRepository.findResponseById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
+    }
+
+    @Transactional
+    public BookingResponse driverArrived(Long bookingId, Long driverId) {
+        timeTransition("arrive");
+        Booking booking = bookingRepository.findDetailedById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
+        if (booking.getDriver() == null || !booking.getDriver().getId().equals(driverId)) {
             throw new SecurityException("Driver is not authorized for this booking.");
         }
-        if (booking.getStatus() != BookingStatus.ACCEPTED) {
+        if (bookingEventLog.currentStatus(booking) != BookingStatus.ACCEPTED) {
             throw new IllegalArgumentException("Booking is not in ACCEPTED status.");
         }
-        booking.setStatus(BookingStatus.ARRIVED);
-        return bookingRepository.save(booking);
+        BookingEvent event = bookingEventLog.append(bookingId, BookingEvent.EventType.ARRIVED, driverId, null);
+        return toResponse(booking, event);
     }
 
 
     @Transactional
-    public Booking startRide(Long bookingId, Long driverId) {
-        Booking booking = bookingRepository.findById(bookingId)
+    public BookingResponse startRide(Long bookingId, Long driverId) {
+        timeTransition("start");
+        Booking booking = bookingRepository.findDetailedById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
 
-        if (!booking.getDriver().getId().equals(driverId)) {
+        if (booking.getDriver() == null || !booking.getDriver().getId().equals(driverId)) {
             throw new SecurityException("Driver is not authorized for this booking.");
         }
-        if (booking.getStatus() != BookingStatus.ARRIVED) {
+        if (bookingEventLog.currentStatus(booking) != BookingStatus.ARRIVED) {
             throw new IllegalArgumentException("Booking must be in ARRIVED status to start.");
         }
 
-        booking.setStatus(BookingStatus.STARTED);
-        booking.setStartTime(LocalDateTime.now());
-        return bookingRepository.save(booking);
+        BookingEvent event = bookingEventLog.append(bookingId, BookingEvent.EventType.STARTED, driverId, null);
+        return toResponse(booking, event);
     }
 
+    // Payment creation and releasing the driver happen when the projector applies the COMPLETED event
     @Transactional
-    public Booking completeRide(Long bookingId, Long driverId) {
-        Booking booking = bookingRepository.findById(bookingId)
+    public BookingResponse completeRide(Long bookingId, Long driverId) {
+        timeTransition("complete");
+        Booking booking = bookingRepository.findDetailedById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
 
-        if (!booking.getDriver().getId().equals(driverId)) {
+        if (booking.getDriver() == null || !booking.getDriver().getId().equals(driverId)) {
             throw new SecurityException("Driver is not authorized to complete this booking.");
         }
-        if (booking.getStatus() != BookingStatus.STARTED) {
+        if (bookingEventLog.currentStatus(booking) != BookingStatus.STARTED) {
             throw new IllegalArgumentException("Booking is not in STARTED status.");
         }
 
-        booking.setEndTime(LocalDateTime.now());
-        booking.setStatus(BookingStatus.COMPLETED);
-        booking.setActualFare(calculateActualFare(booking)); // Calculate actual fare
-        bookingRepository.save(booking);
+        BookingEvent event = bookingEventLog.append(bookingId, BookingEvent.EventType.COMPLETED, driverId,
+                calculateActualFare(booking)); // Calculate actual fare
+        return toResponse(booking, event);
+    }
 
-        // Initiate payment after ride completion
-        paymentService.createPaymentForBooking(booking);
+    @Transactional
+    public BookingResponse cancelBooking(Long bookingId, Long userId) { // userId can be rider or driver
+        timeTransition("cancel");
+        BookingEvent.EventType lastEvent = bookingEventLog.latest(bookingId).map(BookingEvent::getType).orElse(null);
+        if (lastEvent == null || lastEvent == BookingEvent.EventType.REQUESTED) {
+            return cancelWhileDispatching(bookingId, userId);
+        }
 
-        // Set driver back to available
-        Driver driver = booking.getDriver();
-        driver.setIsAvailable(true);
-        driverRepository.save(driver);
+        // Accepted ride: the cancellation is just another event
+        Booking booking = bookingRepository.findDetailedById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
+        checkMayCancel(booking, userId, lastEvent.toStatus());
+        BookingEvent event = bookingEventLog.append(bookingId, BookingEvent.EventType.CANCELLED, userId, null);
+        return toResponse(booking, event);
+    }
 
-        return booking;
+    // Live updates for the booking's rider, its driver, or an admin; starts with the current state
+    @Transactional(readOnly = true)
+    public SseEmitter subscribeToBooking(Long bookingId, Long userId, boolean isAdmin) {
+        BookingResponse booking = bookingRepository.findResponseById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
+        if (!isAdmin && !userId.equals(booking.getRiderId()) && !userId.equals(booking.getDriverId())) {
+            throw new SecurityException("You are not authorized to follow this booking.");
+        }
+        return rideUpdateHub.subscribe(bookingId, booking, booking.getDriverId(), booking.getStatus());
     }
 
-    @Transactional
-    public Booking cancelBooking(Long bookingId, Long userId) { // userId can be rider or driver
-        Booking booking = bookingRepository.findById(bookingId)
+    @Transactional(readOnly = true)
+    public List<BookingEventResponse> getBookingEvents(Long bookingId, Long userId, boolean isAdmin) {
+        BookingResponse booking = bookingRepository.findResponseById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
+        if (!isAdmin && !userId.equals(booking.getRiderId()) && !userId.equals(booking.getDriverId())) {
+            throw new SecurityException("You are not authorized to view this booking's history.");
+        }
+        return bookingEventLog.history(bookingId).stream()
+                .map(BookingEventResponse::from)
+                .toList();
+    }
 
-        // Check if the user is authorized to cancel (rider or assigned driver)
-        if (!booking.getRider().getId().equals(userId) && (booking.getDriver() == null || !booking.getDriver().getId().equals(userId))) {
-            throw new SecurityException("You are not authorized to cancel this booking.");
+    /**
+     * One page of a rider's or driver's history, newest first. The cursor is the (createdAt, id) of the
+     * last row of the previous page, so every page is an index range scan no matter how deep it is.
+     */
+    @Transactional(readOnly = true)
+    public BookingPage getBookingHistory(Long userId, boolean isRider, String cursor, int size) {
+        return pageOf(cursor, size,
+                limit -> isRider ? bookingRepository.findRiderHistory(userId, limit)
+                        : bookingRepository.findDriverHistory(userId, limit),
+                (after, limit) -> isRider
+                        ? bookingRepository.findRiderHistoryBefore(userId, after.createdAt(), after.id(), limit)
+                        : bookingRepository.findDriverHistoryBefore(userId, after.createdAt(), after.id(), limit));
+    }
+
+    // Admin listing of every booking, paginated the same way; use the export for bulk downloads
+    @Transactional(readOnly = true)
+    public BookingPage getAllBookings(String cursor, int size) {
+        return pageOf(cursor, size,
+                bookingRepository::findAllHistory,
+                (after, limit) -> bookingRepository.findAllHistoryBefore(after.createdAt(), after.id(), limit));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<BookingResponse> getBookingById(Long bookingId) {
+        return bookingRepository.findResponseById(bookingId);
+    }
+
+    // --- Private Helper Methods ---
+
+    private BookingResponse createOrReplayRide(Long riderId, Location pickup, Location dropoff, Cab.CabType preferredCabType,
+                                               String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return transactionTemplate.execute(status ->
+                    BookingResponse.from(createRide(riderId, pickup, dropoff, preferredCabType, null)));
         }
 
-        // Only allow cancellation if not already started or completed
-        if (booking.getStatus() == BookingStatus.STARTED || booking.getStatus() == BookingStatus.COMPLETED) {
-            throw new IllegalArgumentException("Cannot cancel a ride that has already started or completed.");
+        BookingResponse[] created = new BookingResponse[1];
+        Long bookingId = idempotencyStore.resolve("booking", riderId, idempotencyKey, () ->
+                bookingRepository.findIdByRiderIdAndIdempotencyKey(riderId, idempotencyKey).orElseGet(() -> {
+                    try {
+                        created[0] = transactionTemplate.execute(status ->
+                                BookingResponse.from(createRide(riderId, pickup, dropoff, preferredCabType, idempotencyKey)));
+                        return created[0].getId();
+                    } catch (DataIntegrityViolationException e) {
+                        // Same key committed concurrently (e.g. on another instance): the unique key kept one
+                        return bookingRepository.findIdByRiderIdAndIdempotencyKey(riderId, idempotencyKey).orElseThrow(() -> e);
+                    }
+                }));
+        if (created[0] != null) {
+            return created[0];
+        }
+        return bookingRepository.findResponseById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
+    }
+
+    // Stops when the surrounding transaction completes, so the transition's time includes the commit
+    private void timeTransition(String transition) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                sample.stop(transitionTimer(transition, status == STATUS_COMMITTED));
+            }
+        });
+    }
+
+    private Timer transitionTimer(String transition, boolean success) {
+        return Timer.builder("booking.transition")
+                .description("Latency of a booking lifecycle transition, including its commit")
+                .tag("transition", transition)
+                .tag("outcome", success ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Runs inside the caller's transaction
+    private Booking createRide(Long riderId, Location pickup, Location dropoff, Cab.CabType preferredCabType,
+                               String idempotencyKey) {
+        Rider rider = riderRepository.findById(riderId)
+                .orElseThrow(() -> new RuntimeException("Rider not found with ID: " + riderId));
+
+        surgePricingEngine.recordDemand(pickup.getLatitude(), pickup.getLongitude());
+
+        // 1. Create a new booking with PENDING status
+        Booking booking = new Booking();
+        booking.setRider(rider);
+        booking.setPickupLocation(pickup);
+        booking.setDropoffLocation(dropoff);
+        booking.setStatus(BookingStatus.PENDING);
+        booking.setEstimatedFare(fareCalculator.estimateFare(pickup, dropoff, preferredCabType)); // Estimate fare
+        booking.setRequestedCabType(preferredCabType);
+        booking.setIdempotencyKey(idempotencyKey); // Set before the insert, so a duplicate key fails the INSERT itself
+        booking = bookingRepository.save(booking);
+        bookingEventLog.append(booking.getId(), BookingEvent.EventType.REQUESTED, riderId, null);
+
+        // 2. Hand the booking to the dispatcher once it is committed. It stays PENDING while it is
+        // offered to the nearest drivers in turn; the rider sees ACCEPTED or NO_DRIVER_FOUND on the booking.
+        if (batchDispatcher.isEnabled()) {
+            batchDispatcher.enqueueAfterCommit(booking.getId(), pickup.getLatitude(), pickup.getLongitude(), preferredCabType);
+        } else {
+            dispatchEngine.dispatchAfterCommit(booking.getId(), pickup.getLatitude(), pickup.getLongitude(), preferredCabType);
         }
 
+        logger.info("Ride requested by rider {}, booking {} is being dispatched", rider.getUsername(), booking.getId());
+        return booking;
+    }
+
+    // The bookings row is the dispatch engine's state until a driver accepts, so it is cancelled in place
+    private BookingResponse cancelWhileDispatching(Long bookingId, Long userId) {
+        // Row lock: a PENDING booking may be re-offered concurrently by the dispatch engine
+        Booking booking = bookingRepository.findWithLockById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found with ID: " + bookingId));
+        checkMayCancel(booking, userId, booking.getStatus());
+
         booking.setStatus(BookingStatus.CANCELLED);
         Booking cancelledBooking = bookingRepository.save(booking);
 
@@ -180,54 +367,94 @@ public class BookingService {
             Driver driver = booking.getDriver();
             driver.setIsAvailable(true);
             driverRepository.save(driver);
+            Long driverId = driver.getId();
+            AfterCommit.run(() -> driverIndex.updateAvailability(driverId, true));
         }
+        dispatchEngine.closedAfterCommit(bookingId);
 
         // Handle refund if payment was already initiated (conceptual for now)
         if (cancelledBooking.getPayment() != null && cancelledBooking.getPayment().getStatus() == Payment.PaymentStatus.COMPLETED) {
             // paymentService.initiateRefund(cancelledBooking.getPayment()); // Placeholder for refund logic
-            System.out.println("Initiating refund for cancelled booking (conceptual). Booking ID: " + bookingId);
+            logger.info("Initiating refund for cancelled booking {} (conceptual)", bookingId);
         }
 
-        return cancelledBooking;
+        // Recorded for the audit trail; the projector sees the row is already CANCELLED
+        bookingEventLog.append(bookingId, BookingEvent.EventType.CANCELLED, userId, null);
+        return BookingResponse.from(cancelledBooking);
     }
 
-    @Transactional(readOnly = true)
-    public List<Booking> getRiderBookings(Long riderId) {
-        Rider rider = riderRepository.findById(riderId)
-                .orElseThrow(() -> new RuntimeException("Rider not found with ID: " + riderId));
-        return bookingRepository.findByRiderOrderByCreatedAtDesc(rider);
-    }
+    private void checkMayCancel(Booking booking, Long userId, BookingStatus currentStatus) {
+        // Check if the user is authorized to cancel (rider or assigned driver)
+        if (!booking.getRider().getId().equals(userId) && (booking.getDriver() == null || !booking.getDriver().getId().equals(userId))) {
+            throw new SecurityException("You are not authorized to cancel this booking.");
+        }
 
-    @Transactional(readOnly = true)
-    public List<Booking> getDriverBookings(Long driverId) {
-        Driver driver = driverRepository.findById(driverId)
-                .orElseThrow(() -> new RuntimeException("Driver not found with ID: " + driverId));
-        return bookingRepository.findByDriverOrderByCreatedAtDesc(driver);
+        // Only allow cancellation if not already started or completed
+        if (currentStatus == BookingStatus.STARTED || currentStatus == BookingStatus.COMPLETED) {
+            throw new IllegalArgumentException("Cannot cancel a ride that has already started or completed.");
+        }
+        if (currentStatus == BookingStatus.CANCELLED) {
+            throw new IllegalArgumentException("Booking is already cancelled.");
+        }
+        // A driver holding an open offer turns it down instead of cancelling the rider's booking
+        if (currentStatus == BookingStatus.PENDING && !booking.getRider().getId().equals(userId)) {
+            throw new IllegalArgumentException("Decline the offer instead of cancelling a PENDING booking.");
+        }
     }
 
-    @Transactional(readOnly = true)
-    public Optional<Booking> getBookingById(Long bookingId) {
-        return bookingRepository.findById(bookingId);
+    // The row may still be behind the log, so the response shows the state the event just produced
+    private BookingResponse toResponse(Booking booking, BookingEvent event) {
+        BookingResponse response = BookingResponse.from(booking);
+        response.setStatus(event.getType().toStatus());
+        response.setUpdatedAt(event.getOccurredAt());
+        switch (event.getType()) {
+            case STARTED -> response.setStartTime(event.getOccurredAt());
+            case COMPLETED -> {
+                response.setEndTime(event.getOccurredAt());
+                response.setActualFare(event.getAmount());
+            }
+            default -> {
+            }
+        }
+        return response;
     }
 
-    // --- Private Helper Methods ---
+    private BookingPage pageOf(String cursor, int size,
+                               Function<Limit, List<BookingSummary>> firstPage,
+                               BiFunction<HistoryCursor, Limit, List<BookingSummary>> nextPage) {
+        if (size < 1 || size > maxHistoryPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxHistoryPageSize + ".");
+        }
+        Limit limit = Limit.of(size + 1); // One extra row tells us whether there is a next page
+        List<BookingSummary> rows = cursor == null || cursor.isBlank()
+                ? firstPage.apply(limit)
+                : nextPage.apply(HistoryCursor.decode(cursor), limit);
+
+        if (rows.size() <= size) {
+            return new BookingPage(rows, null);
+        }
+        List<BookingSummary> page = rows.subList(0, size);
+        BookingSummary last = page.get(size - 1);
+        return new BookingPage(new ArrayList<>(page), new HistoryCursor(last.getCreatedAt(), last.getId()).encode());
+    }
 
-    private BigDecimal calculateEstimatedFare(Location pickup, Location dropoff, Cab.CabType cabType) {
-        // Simple fare calculation: distance based (placeholder)
-        // In a real app: complex logic with actual distance API, time of day, surge pricing, etc.
-        double distance = calculateDistance(pickup, dropoff); // Implement a real distance calculation
-        BigDecimal baseFare = BigDecimal.valueOf(10.0);
-        BigDecimal ratePerKm = BigDecimal.valueOf(2.0);
+    // Opaque to clients: base64url of "<createdAt>|<id>"
+    private record HistoryCursor(LocalDateTime createdAt, Long id) {
 
-        // Adjust rate based on cab type
-        switch (cabType) {
-            case SEDAN: ratePerKm = BigDecimal.valueOf(2.5); break;
-            case SUV: ratePerKm = BigDecimal.valueOf(3.5); break;
-            case LUXURY: ratePerKm = BigDecimal.valueOf(5.0); break;
-            default: break;
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
         }
 
-        return baseFare.add(ratePerKm.multiply(BigDecimal.valueOf(distance)));
+        static HistoryCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid history cursor.");
+            }
+        }
     }
 
     private BigDecimal calculateActualFare(Booking booking) {
@@ -235,17 +462,4 @@ public class BookingService {
         // In a real app: based on actual route taken, traffic, waiting time, etc.
         return booking.getEstimatedFare();
     }
-
-    private double calculateDistance(Location loc1, Location loc2) {
-        // Haversine formula for distance between two lat/lon points (simplified)
-        // For a real application, use a dedicated geospatial library or API (e.g., Google Maps Distance Matrix API)
-        final int R = 6371; // Radius of Earth in kilometers
-        double latDistance = Math.toRadians(loc2.getLatitude() - loc1.getLatitude());
-        double lonDistance = Math.toRadians(loc2.getLongitude() - loc1.getLongitude());
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(loc1.getLatitude())) * Math.cos(Math.toRadians(loc2.getLatitude()))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c; // Distance in kilometers
-    }
 }
@@ -1,6 +1,9 @@
 //This service handles operations related to cabs, primarily managed by drivers.
 package com.example.CBS.service;
 
+import com.example.CBS.geo.DriverLocationBuffer;
+import com.example.CBS.geo.DriverSpatialIndex;
+import com.example.CBS.geo.IndexedDriver;
 import com.example.CBS.model.Cab;
 import com.example.CBS.model.Driver;
 import com.example.CBS.model.Location;
@@ -17,10 +20,17 @@ public class CabService {
 
     private final CabRepository cabRepository;
     private final DriverRepository driverRepository;
+    private final DriverSpatialIndex driverIndex;
+    private final DriverLocationBuffer locationBuffer;
 
-    public CabService(CabRepository cabRepository, DriverRepository driverRepository) {
+    public CabService(CabRepository cabRepository,
+                      DriverRepository driverRepository,
+                      DriverSpatialIndex driverIndex,
+                      DriverLocationBuffer locationBuffer) {
         this.cabRepository = cabRepository;
         this.driverRepository = driverRepository;
+        this.driverIndex = driverIndex;
+        this.locationBuffer = locationBuffer;
     }
 
     @Transactional
@@ -40,6 +50,8 @@ public class CabService {
         Cab savedCab = cabRepository.save(cabDetails);
         driver.setCab(savedCab); // Associate cab with driver
         driverRepository.save(driver);
+        IndexedDriver indexed = toIndexedDriver(driver, savedCab);
+        AfterCommit.run(() -> driverIndex.upsert(indexed));
         return savedCab;
     }
 
@@ -80,7 +92,13 @@ public class CabService {
             existingCab.setLicensePlate(cabDetails.getLicensePlate());
         }
 
-        return cabRepository.save(existingCab);
+        Cab savedCab = cabRepository.save(existingCab);
+        Long driverId = savedCab.getDriver().getId();
+        Long savedCabId = savedCab.getId();
+        Cab.CabType cabType = savedCab.getCabType();
+        Boolean cabActive = savedCab.getIsActive();
+        AfterCommit.run(() -> driverIndex.updateCab(driverId, savedCabId, cabType, cabActive));
+        return savedCab;
     }
 
     @Transactional
@@ -89,20 +107,18 @@ public class CabService {
                 .orElseThrow(() -> new RuntimeException("Cab not found with ID: " + cabId));
         cab.setIsActive(false);
         cabRepository.save(cab);
+        Long driverId = cab.getDriver().getId();
+        Cab.CabType cabType = cab.getCabType();
+        AfterCommit.run(() -> driverIndex.updateCab(driverId, cabId, cabType, false));
     }
 
-    @Transactional
+    // High-frequency GPS pings: the buffer flushes positions in batches. Only a driver the index has not seen
+    // yet costs a lookup; once accepted, the ping itself puts the driver in the index
     public void updateDriverLocation(Long driverId, Location newLocation) {
-        Driver driver = driverRepository.findById(driverId)
-                .orElseThrow(() -> new RuntimeException("Driver not found with ID: " + driverId));
-        driver.setCurrentLocation(newLocation);
-        driverRepository.save(driver);
-
-        // Update cab location as well if cab is associated with driver
-        cabRepository.findByDriver(driver).ifPresent(cab -> {
-            cab.setCurrentCabLocation(newLocation);
-            cabRepository.save(cab);
-        });
+        if (!driverIndex.contains(driverId) && !driverRepository.existsById(driverId)) {
+            throw new RuntimeException("Driver not found with ID: " + driverId);
+        }
+        locationBuffer.record(driverId, newLocation);
     }
 
     @Transactional
@@ -111,5 +127,31 @@ public class CabService {
                 .orElseThrow(() -> new RuntimeException("Driver not found with ID: " + driverId));
         driver.setIsAvailable(isAvailable);
         driverRepository.save(driver);
+
+        // Full refresh so a driver that was never indexed (e.g. after a restart while offline) gets its cab details
+        Cab cab = driver.getCab();
+        IndexedDriver indexed = toIndexedDriver(driver, cab);
+        AfterCommit.run(() -> driverIndex.upsert(indexed));
+    }
+
+    // --- Private Helper Methods ---
+
+    private IndexedDriver toIndexedDriver(Driver driver, Cab cab) {
+        // The in-memory position is newer than the row while a location flush is pending
+        Location stored = driver.getCurrentLocation();
+        IndexedDriver known = driverIndex.get(driver.getId()).orElse(null);
+        Double latitude = known != null && known.latitude() != null ? known.latitude() : (stored != null ? stored.getLatitude() : null);
+        Double longitude = known != null && known.longitude() != null ? known.longitude() : (stored != null ? stored.getLongitude() : null);
+        return new IndexedDriver(
+                driver.getId(),
+                cab != null ? cab.getId() : null,
+                cab != null ? cab.getCabType() : null,
+                latitude,
+                longitude,
+                driver.getIsAvailable(),
+                cab != null ? cab.getIsActive() : Boolean.FALSE,
+                cab != null ? cab.getCapacity() : null,
+                driver.getRating()
+        );
     }
 }
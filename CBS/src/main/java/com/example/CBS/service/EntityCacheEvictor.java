@@ -0,0 +1,34 @@
+//Evicts second-level cache entries for rows changed outside Hibernate (native and JDBC updates).
+package com.example.CBS.service;
+
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Driver;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate keeps the cache in step with writes it performs itself. Rows written with native SQL or
+ * JdbcTemplate (driver claim/release, the location flush) have to be evicted here, one entry at a time,
+ * rather than letting Hibernate drop the whole region.
+ */
+@Component
+public class EntityCacheEvictor {
+
+    private final Cache cache;
+
+    public EntityCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.getCache();
+    }
+
+    // Evicted now and again after commit, so a concurrent read before the commit cannot re-cache the old row
+    public void evictDriver(Long driverId) {
+        cache.evict(Driver.class, driverId);
+        AfterCommit.run(() -> cache.evict(Driver.class, driverId));
+    }
+
+    public void evictCab(Long cabId) {
+        cache.evict(Cab.class, cabId);
+        AfterCommit.run(() -> cache.evict(Cab.class, cabId));
+    }
+}
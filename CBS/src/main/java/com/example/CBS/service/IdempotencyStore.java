@@ -0,0 +1,103 @@
+//Bounded, expiring in-memory map of idempotency keys to the resource the first request produced.
+package com.example.CBS.service;
+
+import com.example.CBS.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * First line of defence against client retries: a retry that reaches the same instance within the TTL is
+ * answered from memory without touching matching or the database. Concurrent duplicates on one instance
+ * are collapsed: the first caller registers an in-flight future for the key and does the work outside any
+ * map lock, the others wait on that future, so a slow first request never blocks callers with other keys.
+ * Callers pair this with a unique constraint so retries that land on another instance, or arrive after a
+ * restart or eviction, still resolve to the original resource.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final Cache<String, Long> resolved;
+    private final ConcurrentHashMap<String, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Value("${app.idempotency.record-retention-days:7}")
+    private int recordRetentionDays;
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            @Value("${app.idempotency.cache-size:100000}") long cacheSize,
+                            @Value("${app.idempotency.cache-ttl-ms:86400000}") long cacheTtlMs) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.resolved = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .build();
+    }
+
+    /**
+     * Returns the resource id remembered for (scope, owner, key), or runs {@code firstRequest} to produce it.
+     * A failed first request is not remembered, so the client may retry it.
+     */
+    public Long resolve(String scope, Object owner, String key, Supplier<Long> firstRequest) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters.");
+        }
+        String composite = scope + ':' + owner + ':' + key;
+        Long known = resolved.getIfPresent(composite);
+        if (known != null) {
+            return known;
+        }
+        CompletableFuture<Long> mine = new CompletableFuture<>();
+        CompletableFuture<Long> existing = inFlight.putIfAbsent(composite, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            // Re-checked: another first request may have finished between the lookup and putIfAbsent
+            Long id = resolved.getIfPresent(composite);
+            if (id == null) {
+                id = firstRequest.get();
+                resolved.put(composite, id);
+            }
+            mine.complete(id);
+            return id;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e); // Not remembered: the next attempt runs the first request again
+            throw e;
+        } finally {
+            inFlight.remove(composite, mine);
+        }
+    }
+
+    @Scheduled(cron = "${app.idempotency.purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpiredRecords() {
+        idempotencyRecordRepository.deleteOlderThan(LocalDateTime.now().minusDays(recordRetentionDays));
+    }
+
+    // --- Private Helper Methods ---
+
+    // A concurrent duplicate gets the first request's result, or the same exception it failed with
+    private static Long await(CompletableFuture<Long> first) {
+        try {
+            return first.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -2,13 +2,18 @@
 // It'll simulate interactions with a payment gateway.
 package com.example.CBS.service;
 
-import com.example.CBS.model.Booking;
 import com.example.CBS.model.Payment;
 import com.example.CBS.model.Payment.PaymentStatus;
+import com.example.CBS.model.PaymentOutboxEntry;
+import com.example.CBS.payment.PaymentOutboxWorker;
+import com.example.CBS.repository.PaymentOutboxRepository;
 import com.example.CBS.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,30 +21,30 @@ import java.util.UUID;
 @Service
 public class PaymentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
+
     private final PaymentRepository paymentRepository;
+    private final PaymentOutboxRepository paymentOutboxRepository;
 
-    public PaymentService(PaymentRepository paymentRepository) {
+    public PaymentService(PaymentRepository paymentRepository,
+                          PaymentOutboxRepository paymentOutboxRepository) {
         this.paymentRepository = paymentRepository;
+        this.paymentOutboxRepository = paymentOutboxRepository;
     }
 
+    /**
+     * Queues the payment for a completed booking. Only an outbox insert happens in the caller's transaction;
+     * the gateway charge and the payment row are created by {@link PaymentOutboxWorker}.
+     */
     @Transactional
-    public Payment createPaymentForBooking(Booking booking) {
-        // Check if a payment record already exists for this booking
-        Optional<Payment> existingPayment = paymentRepository.findByBookingId(booking.getId());
-        if (existingPayment.isPresent()) {
-            // You might want to handle re-attempts or existing payments differently
-            return existingPayment.get();
-        }
-
-        Payment payment = new Payment();
-        payment.setBooking(booking);
-        payment.setAmount(booking.getActualFare());
-        payment.setStatus(PaymentStatus.PENDING);
-        payment.setPaymentMethod("PAYPAL_MOCK"); // Indicate it's a mock payment
-        payment.setTransactionId(UUID.randomUUID().toString()); // Generate a mock transaction ID
-        payment.setPaymentDate(LocalDateTime.now()); // Set initial date
-
-        return paymentRepository.save(payment);
+    public void enqueuePayment(Long bookingId, BigDecimal amount) {
+        PaymentOutboxEntry entry = new PaymentOutboxEntry();
+        entry.setBookingId(bookingId);
+        entry.setAmount(amount);
+        entry.setStatus(PaymentOutboxEntry.OutboxStatus.PENDING);
+        entry.setNextAttemptAt(LocalDateTime.now());
+        entry.setCreatedAt(LocalDateTime.now());
+        paymentOutboxRepository.save(entry);
     }
 
     /**
@@ -57,7 +62,7 @@ public class PaymentService {
         }
 
         // --- CONCEPTUAL CALL TO PAYPAL API ---
-        System.out.println("Simulating call to PayPal for Payment ID: " + paymentId + " Amount: " + payment.getAmount());
+        logger.info("Simulating call to PayPal for payment {}, amount {}", paymentId, payment.getAmount());
         // For a real PayPal integration:
         // 1. Create a PayPal order/payment using PayPal SDK or REST API.
         // 2. Get the approval URL from PayPal's response.
@@ -69,38 +74,6 @@ public class PaymentService {
     }
 
 
-    /**
-     * Handles the webhook/callback from the payment gateway after payment processing.
-     * This is where the actual payment status update happens based on the gateway's response.
-     */
-    @Transactional
-    public Payment handlePaymentCallback(String transactionId, String status, String payerId) {
-        Payment payment = paymentRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new RuntimeException("Payment not found with transaction ID: " + transactionId));
-
-        // Update payment status based on callback from gateway
-        if ("COMPLETED".equalsIgnoreCase(status)) {
-            payment.setStatus(PaymentStatus.COMPLETED);
-            payment.setPayerId(payerId); // Store payer ID if provided by gateway
-            payment.setPaymentDate(LocalDateTime.now());
-            System.out.println("Payment " + transactionId + " successfully COMPLETED.");
-
-            // Further actions: mark booking as paid, send confirmation, etc.
-            // booking.setIsPaid(true); // Assuming Booking has an isPaid field
-            // bookingRepository.save(booking);
-
-        } else if ("FAILED".equalsIgnoreCase(status)) {
-            payment.setStatus(PaymentStatus.FAILED);
-            System.err.println("Payment " + transactionId + " FAILED.");
-        } else if ("REFUNDED".equalsIgnoreCase(status)) {
-            payment.setStatus(PaymentStatus.REFUNDED);
-            System.out.println("Payment " + transactionId + " REFUNDED.");
-        }
-        // Add more status handling as per actual payment gateway documentation (e.g., PENDING, CAPTURED, VOIDED)
-
-        return paymentRepository.save(payment);
-    }
-
     @Transactional
     public Payment initiateRefund(Long paymentId) {
         Payment payment = paymentRepository.findById(paymentId)
@@ -111,7 +84,7 @@ public class PaymentService {
         }
 
         // --- CONCEPTUAL CALL TO PAYPAL REFUND API ---
-        System.out.println("Simulating refund call to PayPal for Payment ID: " + paymentId);
+        logger.info("Simulating refund call to PayPal for payment {}", paymentId);
         // In a real app, call PayPal refund API. If successful:
         payment.setStatus(PaymentStatus.REFUNDED);
         // --- END CONCEPTUAL CALL ---
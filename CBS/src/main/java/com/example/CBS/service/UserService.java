@@ -3,6 +3,8 @@ package com.example.CBS.service;
 
 import com.example.CBS.model.User;
 import com.example.CBS.repository.UserRepository;
+import com.example.CBS.security.services.JwtPrincipalResolver;
+import com.example.CBS.security.services.TokenRevocationRegistry;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,10 +17,17 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final JwtPrincipalResolver principalResolver;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository,
+                       PasswordEncoder passwordEncoder,
+                       TokenRevocationRegistry revocationRegistry,
+                       JwtPrincipalResolver principalResolver) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.revocationRegistry = revocationRegistry;
+        this.principalResolver = principalResolver;
     }
 
     @Transactional(readOnly = true)
@@ -47,15 +56,19 @@ public class UserService {
         // For username change, you might need to handle unique constraint carefully
         // user.setUsername(userDetails.getUsername());
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        principalResolver.evict(savedUser.getUsername());
+        return savedUser;
     }
 
     @Transactional
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("User not found with id: " + id);
-        }
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+        userRepository.delete(user);
+        // Tokens of a deleted user must stop working even though they are verified without the database
+        revocationRegistry.revokeTokensOf(id);
+        principalResolver.evict(user.getUsername());
     }
 
     @Transactional
@@ -63,6 +76,10 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         user.setPassword(passwordEncoder.encode(newPassword));
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        // A password change invalidates every token issued before it
+        revocationRegistry.revokeTokensOf(userId);
+        principalResolver.evict(savedUser.getUsername());
+        return savedUser;
     }
 }
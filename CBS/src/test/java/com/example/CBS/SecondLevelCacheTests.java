@@ -0,0 +1,65 @@
+package com.example.CBS;
+
+import com.example.CBS.model.Role;
+import com.example.CBS.repository.RoleRepository;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application with the second-level and query caches enabled exactly as configured for production
+ * (only the database is H2), so a cache configuration the JCache provider cannot load fails the build.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class SecondLevelCacheTests {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void regionsUseTheBoundsFromApplicationConf() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+
+        assertThat(maximumSize(cacheManager, "role")).isEqualTo(100);
+        assertThat(maximumSize(cacheManager, "user")).isEqualTo(100_000);
+        assertThat(maximumSize(cacheManager, "user-roles")).isEqualTo(100_000);
+        assertThat(maximumSize(cacheManager, "cab")).isEqualTo(50_000);
+    }
+
+    @Test
+    void secondReadOfAnEntityIsServedFromTheCache() {
+        Long roleId = roleRepository.save(new Role(null, "ROLE_CACHE_TEST")).getId();
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transactionTemplate.executeWithoutResult(status -> roleRepository.findById(roleId).orElseThrow());
+        transactionTemplate.executeWithoutResult(status -> roleRepository.findById(roleId).orElseThrow());
+
+        assertThat(statistics.getDomainDataRegionStatistics("role").getPutCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("role").getHitCount()).isEqualTo(1);
+    }
+
+    // --- Private Helper Methods ---
+
+    private static long maximumSize(CacheManager cacheManager, String region) {
+        return cacheManager.getCache(region).getConfiguration(CaffeineConfiguration.class).getMaximumSize().orElseThrow();
+    }
+}
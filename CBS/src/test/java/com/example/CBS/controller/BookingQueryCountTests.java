@@ -0,0 +1,196 @@
+package com.example.CBS.controller;
+
+import com.example.CBS.model.Booking;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Driver;
+import com.example.CBS.model.Location;
+import com.example.CBS.model.Rider;
+import com.example.CBS.model.Role;
+import com.example.CBS.repository.BookingRepository;
+import com.example.CBS.repository.CabRepository;
+import com.example.CBS.repository.DriverRepository;
+import com.example.CBS.repository.RiderRepository;
+import com.example.CBS.repository.RoleRepository;
+import com.example.CBS.security.services.UserDetailsImpl;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements Hibernate issues while serving each booking read endpoint, first with a small
+ * history and then with a much larger one. The counts must be identical: any lazy load per booking (N+1)
+ * makes the second count grow with the list size and fails the test. Single-booking transitions are pinned
+ * to an exact count instead.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("sqlcount")
+class BookingQueryCountTests {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private RiderRepository riderRepository;
+    @Autowired
+    private DriverRepository driverRepository;
+    @Autowired
+    private CabRepository cabRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private Rider rider;
+    private Driver driver;
+    private Cab cab;
+
+    @BeforeEach
+    void setUp() {
+        long n = SEQUENCE.incrementAndGet();
+        rider = new Rider("count-rider" + n, "pw", "count-rider" + n + "@example.com", "Rita", "Rider");
+        rider.setRoles(new HashSet<>(Set.of(role("ROLE_RIDER"))));
+        rider = riderRepository.save(rider);
+
+        driver = new Driver("count-driver" + n, "pw", "count-driver" + n + "@example.com", "Dan", "Driver", "DL-C" + n);
+        driver.setRoles(new HashSet<>(Set.of(role("ROLE_DRIVER"))));
+        driver = driverRepository.save(driver);
+        cab = cabRepository.save(new Cab(null, "CNT" + n, "Make", "Model", Cab.CabType.SEDAN, 4, driver,
+                new Location(19.07, 72.87, "Depot"), true));
+    }
+
+    @Test
+    void riderBookingListDoesNotGrowWithHistory() throws Exception {
+        assertConstantStatements("/api/bookings/my-bookings", asRider());
+    }
+
+    @Test
+    void driverBookingListDoesNotGrowWithHistory() throws Exception {
+        assertConstantStatements("/api/bookings/my-bookings", asDriver());
+    }
+
+    @Test
+    void historyPageDoesNotGrowWithPageSize() throws Exception {
+        assertConstantStatements("/api/bookings/history?size=50", asRider());
+    }
+
+    @Test
+    void adminListingDoesNotGrowWithPageSize() throws Exception {
+        assertConstantStatements("/api/bookings?size=50", asAdmin());
+    }
+
+    @Test
+    void bookingDetailsUseASingleStatement() throws Exception {
+        Booking booking = createBookings(1);
+        assertThat(countStatements("/api/bookings/" + booking.getId(), asRider())).isEqualTo(1);
+    }
+
+    @Test
+    void acceptReadsTheResponseBackInOneStatement() throws Exception {
+        Booking booking = createBookings(1);
+        booking.setStatus(Booking.BookingStatus.PENDING); // An open offer to this driver
+        bookingRepository.save(booking);
+
+        // Load the booking (and its inverse one-to-one payment, which Hibernate cannot proxy), accept the offer,
+        // read the last event, append ACCEPTED, read the response back
+        assertThat(countStatements(put("/api/bookings/" + booking.getId() + "/accept"), asDriver())).isEqualTo(6);
+        assertThat(bookingRepository.findById(booking.getId()).orElseThrow().getStatus())
+                .isEqualTo(Booking.BookingStatus.ACCEPTED);
+    }
+
+    // --- Private Helper Methods ---
+
+    private void assertConstantStatements(String url, RequestPostProcessor user) throws Exception {
+        createBookings(2);
+        long small = countStatements(url, user);
+        createBookings(30);
+        long large = countStatements(url, user);
+        assertThat(large).as("SQL statements for %s with 32 bookings vs 2", url).isEqualTo(small);
+    }
+
+    private long countStatements(String url, RequestPostProcessor user) throws Exception {
+        return countStatements(get(url), user);
+    }
+
+    private long countStatements(MockHttpServletRequestBuilder request, RequestPostProcessor user) throws Exception {
+        SqlStatementCounter.reset();
+        mockMvc.perform(request.with(user)).andExpect(status().isOk());
+        return SqlStatementCounter.count();
+    }
+
+    private Booking createBookings(int count) {
+        Booking last = null;
+        for (int i = 0; i < count; i++) {
+            Booking booking = new Booking();
+            booking.setRider(rider);
+            booking.setDriver(driver);
+            booking.setCab(cab);
+            booking.setPickupLocation(new Location(19.07, 72.87, "Pickup " + i));
+            booking.setDropoffLocation(new Location(19.10, 72.90, "Dropoff " + i));
+            booking.setRequestedCabType(Cab.CabType.SEDAN);
+            booking.setStatus(Booking.BookingStatus.COMPLETED);
+            booking.setEstimatedFare(BigDecimal.valueOf(42));
+            booking.setActualFare(BigDecimal.valueOf(42));
+            last = bookingRepository.save(booking);
+        }
+        return last;
+    }
+
+    private Role role(String name) {
+        return roleRepository.findByName(name).orElseGet(() -> roleRepository.save(new Role(null, name)));
+    }
+
+    private RequestPostProcessor asRider() {
+        return SecurityMockMvcRequestPostProcessors.user(UserDetailsImpl.build(rider));
+    }
+
+    private RequestPostProcessor asDriver() {
+        return SecurityMockMvcRequestPostProcessors.user(UserDetailsImpl.build(driver));
+    }
+
+    private RequestPostProcessor asAdmin() {
+        Rider admin = new Rider("count-admin", "pw", "count-admin@example.com", "Ada", "Admin");
+        admin.setId(-1L);
+        admin.setRoles(new HashSet<>(Set.of(new Role(null, "ROLE_ADMIN"))));
+        return SecurityMockMvcRequestPostProcessors.user(UserDetailsImpl.build(admin));
+    }
+
+    // Registered through hibernate.session_factory.statement_inspector in application-sqlcount.properties
+    public static class SqlStatementCounter implements StatementInspector {
+
+        private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+        static void reset() {
+            COUNT.get()[0] = 0;
+        }
+
+        static long count() {
+            return COUNT.get()[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.get()[0]++;
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.CBS.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * {@link HungarianAssignment}: known optima, rectangular matrices checked against brute force, and the
+ * {@link HungarianAssignment#NO_EDGE} padding the batch dispatcher relies on.
+ */
+class HungarianAssignmentTests {
+
+    @Test
+    void findsTheKnownOptimumOfASquareMatrix() {
+        double[][] cost = {
+                {4, 1, 3},
+                {2, 0, 5},
+                {3, 2, 2}
+        };
+
+        int[] assignment = HungarianAssignment.solve(cost);
+
+        assertThat(assignment).containsExactly(1, 0, 2);
+        assertThat(total(cost, assignment)).isEqualTo(5.0);
+    }
+
+    @Test
+    void assignsEachRowToADistinctColumnOfAWideMatrix() {
+        double[][] cost = {
+                {9, 2, 7, 8},
+                {6, 4, 3, 7}
+        };
+
+        int[] assignment = HungarianAssignment.solve(cost);
+
+        assertThat(assignment).containsExactly(1, 2);
+        assertThat(total(cost, assignment)).isEqualTo(5.0);
+    }
+
+    @Test
+    void matchesBruteForceOnRandomRectangularMatrices() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int round = 0; round < 500; round++) {
+            int rows = 1 + random.nextInt(6);
+            int columns = rows + random.nextInt(3);
+            double[][] cost = new double[rows][columns];
+            for (double[] row : cost) {
+                for (int j = 0; j < columns; j++) {
+                    row[j] = random.nextDouble(0, 20);
+                }
+            }
+
+            int[] assignment = HungarianAssignment.solve(cost);
+
+            assertThat(Arrays.stream(assignment).distinct().count()).isEqualTo(rows);
+            assertThat(total(cost, assignment)).isCloseTo(bruteForceMinimum(cost, 0, new boolean[columns]), within(1e-9));
+        }
+    }
+
+    @Test
+    void rowsWithoutEdgesLandOnPaddingColumns() {
+        // Three requests, one reachable driver: rows 0 and 1 compete for it, row 2 has no edge at all.
+        // Columns are padded to the row count, as the batch dispatcher does
+        double e = HungarianAssignment.NO_EDGE;
+        double[][] cost = {
+                {3.5, e, e},
+                {1.5, e, e},
+                {e, e, e}
+        };
+
+        int[] assignment = HungarianAssignment.solve(cost);
+
+        assertThat(assignment[1]).isEqualTo(0); // The nearer request gets the driver
+        assertThat(cost[0][assignment[0]]).isEqualTo(e);
+        assertThat(cost[2][assignment[2]]).isEqualTo(e);
+        assertThat(Arrays.stream(assignment).distinct().count()).isEqualTo(3);
+    }
+
+    @Test
+    void prefersRealEdgesOverPaddingWhenAFullMatchingExists() {
+        double e = HungarianAssignment.NO_EDGE;
+        double[][] cost = {
+                {1, 2, e},
+                {1, e, e}
+        };
+
+        int[] assignment = HungarianAssignment.solve(cost);
+
+        assertThat(assignment).containsExactly(1, 0); // Row 0 gives way, so neither row is left unmatched
+    }
+
+    @Test
+    void handlesEmptyAndRejectsTallMatrices() {
+        assertThat(HungarianAssignment.solve(new double[0][0])).isEmpty();
+        assertThatThrownBy(() -> HungarianAssignment.solve(new double[][]{{1}, {2}}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // --- Private Helper Methods ---
+
+    private static double total(double[][] cost, int[] assignment) {
+        double sum = 0;
+        for (int row = 0; row < assignment.length; row++) {
+            sum += cost[row][assignment[row]];
+        }
+        return sum;
+    }
+
+    private static double bruteForceMinimum(double[][] cost, int row, boolean[] taken) {
+        if (row == cost.length) {
+            return 0;
+        }
+        double best = Double.MAX_VALUE;
+        for (int j = 0; j < taken.length; j++) {
+            if (!taken[j]) {
+                taken[j] = true;
+                best = Math.min(best, cost[row][j] + bruteForceMinimum(cost, row + 1, taken));
+                taken[j] = false;
+            }
+        }
+        return best;
+    }
+}
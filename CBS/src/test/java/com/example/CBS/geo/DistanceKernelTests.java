@@ -0,0 +1,134 @@
+package com.example.CBS.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * {@link DistanceKernel} against the per-pair Haversine it replaced, and the pre-filter slack that keeps
+ * drivers on the radius from being dropped by the equirectangular estimate.
+ */
+class DistanceKernelTests {
+
+    @Test
+    void haversineMatchesTheLegacyFormula() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 100_000; i++) {
+            double lat1 = random.nextDouble(-85, 85);
+            double lon1 = random.nextDouble(-180, 180);
+            double lat2 = random.nextDouble(-85, 85);
+            double lon2 = random.nextDouble(-180, 180);
+
+            double expected = legacyDistanceKm(lat1, lon1, lat2, lon2);
+            double actual = DistanceKernel.haversineKm(lat1, lon1, DistanceKernel.cosLatitude(lat1),
+                    lat2, lon2, DistanceKernel.cosLatitude(lat2));
+            assertThat(actual).isCloseTo(expected, within(1e-6));
+        }
+    }
+
+    @Test
+    void oneDegreeOfLatitudeIsAbout111Km() {
+        double km = DistanceKernel.haversineKm(12.0, 77.0, DistanceKernel.cosLatitude(12.0),
+                13.0, 77.0, DistanceKernel.cosLatitude(13.0));
+
+        assertThat(km).isCloseTo(111.19, within(0.01));
+        assertThat(GeoUtils.distanceKm(12.0, 77.0, 13.0, 77.0)).isEqualTo(km);
+    }
+
+    @Test
+    void equirectangularWrapsAroundTheAntimeridian() {
+        double cos = DistanceKernel.cosLatitude(10.0);
+
+        double km = DistanceKernel.equirectangularKm(10.0, 179.99, cos, 10.0, -179.99, cos);
+
+        assertThat(km).isCloseTo(legacyDistanceKm(10.0, 179.99, 10.0, -179.99), within(1e-3));
+    }
+
+    @Test
+    void prefilterSlackCoversTheEstimateErrorAtCityScale() {
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 100_000; i++) {
+            double lat1 = random.nextDouble(-70, 70);
+            double lon1 = random.nextDouble(-180, 180);
+            double lat2 = lat1 + random.nextDouble(-0.3, 0.3);
+            double lon2 = lon1 + random.nextDouble(-0.3, 0.3);
+            double cos1 = DistanceKernel.cosLatitude(lat1);
+            double cos2 = DistanceKernel.cosLatitude(lat2);
+
+            double exact = DistanceKernel.haversineKm(lat1, lon1, cos1, lat2, lon2, cos2);
+            double estimate = DistanceKernel.equirectangularKm(lat1, lon1, cos1, lat2, lon2, cos2);
+            // A candidate with exact <= radius must pass the estimate <= radius * slack check
+            assertThat(estimate).isLessThanOrEqualTo(exact * DistanceKernel.PREFILTER_SLACK);
+        }
+    }
+
+    @Test
+    void distancesWithinKeepsExactlyTheCandidatesInsideTheRadius() {
+        SplittableRandom random = new SplittableRandom(9);
+        double latitude = 59.9;
+        double longitude = 10.7;
+        double maxKm = 10.0;
+        int count = 5_000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] cosLatitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = latitude + random.nextDouble(-0.2, 0.2);
+            longitudes[i] = longitude + random.nextDouble(-0.4, 0.4);
+            cosLatitudes[i] = DistanceKernel.cosLatitude(latitudes[i]);
+        }
+        double[] out = new double[count];
+
+        int within = DistanceKernel.distancesWithin(latitude, longitude, DistanceKernel.cosLatitude(latitude),
+                latitudes, longitudes, cosLatitudes, count, maxKm, out);
+
+        int expectedWithin = 0;
+        for (int i = 0; i < count; i++) {
+            double expected = legacyDistanceKm(latitude, longitude, latitudes[i], longitudes[i]);
+            if (expected <= maxKm) {
+                expectedWithin++;
+                assertThat(out[i]).isCloseTo(expected, within(1e-6));
+            } else {
+                assertThat(out[i]).isEqualTo(Double.POSITIVE_INFINITY);
+            }
+        }
+        assertThat(within).isEqualTo(expectedWithin).isPositive();
+    }
+
+    @Test
+    void candidateJustInsideTheRadiusSurvivesThePrefilter() {
+        double latitude = 65.0;
+        double cosLat = DistanceKernel.cosLatitude(latitude);
+        double maxKm = 5.0;
+        // Due east and north-east, just under maxKm, at a latitude where the estimate errs more
+        double[] latitudes = {latitude, latitude + 0.0318};
+        double[] longitudes = {10.0 + 0.10619, 10.0 + 0.07526};
+        double[] cosLatitudes = {DistanceKernel.cosLatitude(latitudes[0]), DistanceKernel.cosLatitude(latitudes[1])};
+        double[] out = new double[2];
+
+        int within = DistanceKernel.distancesWithin(latitude, 10.0, cosLat, latitudes, longitudes, cosLatitudes, 2, maxKm, out);
+
+        for (int i = 0; i < 2; i++) {
+            double exact = legacyDistanceKm(latitude, 10.0, latitudes[i], longitudes[i]);
+            assertThat(exact).isBetween(maxKm - 0.05, maxKm);
+            assertThat(out[i]).isCloseTo(exact, within(1e-6));
+        }
+        assertThat(within).isEqualTo(2);
+    }
+
+    // --- Private Helper Methods ---
+
+    // The Haversine as it was before the kernel: toRadians, cos of both latitudes and atan2 for every pair
+    private static double legacyDistanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return GeoUtils.EARTH_RADIUS_KM * c;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.CBS.geo;
+
+import com.example.CBS.model.Cab;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link FleetStateStore}: round trips through the columns, id-table growth, the documented footprint, and
+ * seqlock reads that never see half of a concurrent write.
+ */
+class FleetStateStoreTests {
+
+    @Test
+    void storesAndReadsBackADriver() {
+        FleetStateStore store = new FleetStateStore(16);
+        store.put(new IndexedDriver(7L, 70L, Cab.CabType.SUV, 12.97, 77.59, true, true, 6, 4.5));
+
+        assertThat(store.get(7L)).isEqualTo(new IndexedDriver(7L, 70L, Cab.CabType.SUV, 12.97, 77.59, true, true, 6, 4.5));
+        assertThat(store.contains(7L)).isTrue();
+        assertThat(store.get(8L)).isNull();
+        assertThat(store.contains(8L)).isFalse();
+    }
+
+    @Test
+    void clearedDriverIsNoLongerPresent() {
+        FleetStateStore store = new FleetStateStore(16);
+        int slot = store.put(new IndexedDriver(7L, 70L, Cab.CabType.SEDAN, 12.97, 77.59, true, true, 4, 4.0));
+
+        store.clear(slot);
+
+        assertThat(store.get(7L)).isNull();
+        assertThat(store.contains(7L)).isFalse();
+        assertThat(store.slotOf(7L)).isEqualTo(slot); // Slots are not reused
+    }
+
+    @Test
+    void growingKeepsEveryDriverAndItsSlot() {
+        FleetStateStore store = new FleetStateStore(16);
+        int drivers = 10_000;
+        for (long id = 1; id <= drivers; id++) {
+            assertThat(store.put(driver(id, id))).isEqualTo((int) id - 1);
+        }
+
+        assertThat(store.size()).isEqualTo(drivers);
+        for (long id = 1; id <= drivers; id++) {
+            assertThat(store.slotOf(id)).isEqualTo((int) id - 1);
+            assertThat(store.get(id).latitude()).isEqualTo(latitude(id));
+        }
+        assertThat(store.slotOf(drivers + 1)).isEqualTo(FleetStateStore.NO_SLOT);
+    }
+
+    @Test
+    void footprintIsBytesPerSlotPlusTwiceAsManyIdTableEntries() {
+        assertThat(FleetStateStore.BYTES_PER_SLOT).isEqualTo(51);
+        assertThat(FleetStateStore.BYTES_PER_ID_ENTRY).isEqualTo(12);
+
+        FleetStateStore store = new FleetStateStore(4096);
+        assertThat(store.footprintBytes()).isEqualTo(4096L * 51 + 8192L * 12);
+
+        // Doubling from 4096 takes 500k drivers to 524,288 slots: ~39 MB
+        for (long id = 1; id <= 500_000; id++) {
+            store.put(driver(id, id));
+        }
+        assertThat(store.footprintBytes()).isEqualTo(524_288L * 51 + 1_048_576L * 12);
+    }
+
+    @Test
+    void rejectsNonPositiveDriverIds() {
+        FleetStateStore store = new FleetStateStore(16);
+
+        assertThatThrownBy(() -> store.put(driver(0, 1))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readersNeverSeeATornWriteWhileTheStoreGrows() throws Exception {
+        FleetStateStore store = new FleetStateStore(16);
+        store.put(driver(1, 1));
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        // Single writer, as in production: rewrites driver 1 and keeps appending drivers to force growth
+        Thread writer = new Thread(() -> {
+            long next = 2;
+            for (long version = 2; running.get(); version++) {
+                store.put(driver(1, version));
+                if (next < 200_000) {
+                    store.put(driver(next, next));
+                    next++;
+                }
+            }
+        });
+        Thread[] readers = new Thread[2];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                while (running.get()) {
+                    IndexedDriver read = store.get(1L);
+                    // Every field of driver(1, v) is derived from v, so a mix of two writes breaks the relation
+                    if (read == null || read.cabId() == null
+                            || read.latitude() != latitude(read.cabId()) || read.longitude() != -latitude(read.cabId())) {
+                        torn.compareAndSet(null, String.valueOf(read));
+                    }
+                }
+            });
+        }
+
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        TimeUnit.MILLISECONDS.sleep(500);
+        running.set(false);
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(torn.get()).isNull();
+        assertThat(store.size()).isGreaterThan(16);
+    }
+
+    private static IndexedDriver driver(long driverId, long version) {
+        return new IndexedDriver(driverId, version, Cab.CabType.SEDAN, latitude(version), -latitude(version), true, true, 4, 4.0);
+    }
+
+    private static double latitude(long version) {
+        return (version % 1_000_000) / 1_000_000.0 * 80;
+    }
+}
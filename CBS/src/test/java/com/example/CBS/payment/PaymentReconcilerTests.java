@@ -0,0 +1,137 @@
+package com.example.CBS.payment;
+
+import com.example.CBS.model.Booking;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Location;
+import com.example.CBS.model.Payment;
+import com.example.CBS.model.Payment.PaymentStatus;
+import com.example.CBS.model.ReconciliationCheckpoint;
+import com.example.CBS.model.ReconciliationMismatch;
+import com.example.CBS.model.ReconciliationRun;
+import com.example.CBS.model.ReconciliationRun.RunStatus;
+import com.example.CBS.model.Rider;
+import com.example.CBS.repository.BookingRepository;
+import com.example.CBS.repository.PaymentRepository;
+import com.example.CBS.repository.ReconciliationCheckpointRepository;
+import com.example.CBS.repository.RiderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A {@link PaymentReconciler} run that fails partway keeps the checkpoints of the chunks it committed, and
+ * triggering the same settlement file again resumes that run from them instead of starting over.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reconciliation;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "app.payments.reconciliation.settlement-dir=target/reconciliation-tests",
+        "app.payments.reconciliation.partitions=1",
+        "app.payments.reconciliation.parallelism=1",
+        "app.payments.reconciliation.chunk-size=2"
+})
+@ActiveProfiles("h2")
+class PaymentReconcilerTests {
+
+    private static final Path SETTLEMENT_DIR = Path.of("target/reconciliation-tests");
+
+    @Autowired
+    private PaymentReconciler paymentReconciler;
+    @Autowired
+    private RiderRepository riderRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Test
+    void rerunResumesFromTheCheckpointsOfAFailedRun() throws Exception {
+        List<Payment> payments = createPendingPayments(6);
+        // Chunks of two: TX-1/TX-2 and TX-3/TX-4 commit, then TX-5's malformed line fails the third chunk
+        writeSettlementFile("TX-1,PENDING,10.00", "TX-2,COMPLETED,10.00", "TX-3,PENDING,10.00", "TX-4,PENDING,10.00",
+                "TX-5,COMPLETED", "TX-6,COMPLETED,10.00");
+
+        ReconciliationRun first = awaitFinished(paymentReconciler.start("settlement-resume.csv"));
+
+        assertThat(first.getStatus()).isEqualTo(RunStatus.FAILED);
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findByRunIdOrderByPartitionIndex(first.getId()).get(0);
+        assertThat(checkpoint.getLastPaymentId()).isEqualTo(payments.get(3).getId());
+        assertThat(checkpoint.getPaymentsChecked()).isEqualTo(4);
+        assertThat(mismatchedPayments(first)).containsExactly(payments.get(1).getId());
+
+        // TX-1 now disagrees too, but it is behind the checkpoint and must not be compared again
+        writeSettlementFile("TX-1,COMPLETED,10.00", "TX-2,COMPLETED,10.00", "TX-3,PENDING,10.00", "TX-4,PENDING,10.00",
+                "TX-5,COMPLETED,10.00", "TX-6,COMPLETED,10.00");
+
+        ReconciliationRun resumed = awaitFinished(paymentReconciler.start("settlement-resume.csv"));
+
+        assertThat(resumed.getId()).isEqualTo(first.getId());
+        assertThat(resumed.getStatus()).isEqualTo(RunStatus.COMPLETED);
+        assertThat(resumed.getPaymentsChecked()).isEqualTo(6);
+        assertThat(resumed.getMismatches()).isEqualTo(3);
+        assertThat(mismatchedPayments(resumed))
+                .containsExactly(payments.get(1).getId(), payments.get(4).getId(), payments.get(5).getId());
+
+        // A completed file is not reconciled twice
+        assertThat(paymentReconciler.start("settlement-resume.csv").getId()).isEqualTo(first.getId());
+    }
+
+    // --- Private Helper Methods ---
+
+    private List<Payment> createPendingPayments(int count) {
+        Rider rider = riderRepository.save(new Rider("reconcile-rider", "pw", "reconcile-rider@example.com", "Rita", "Rider"));
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Booking booking = new Booking();
+            booking.setRider(rider);
+            booking.setPickupLocation(new Location(19.07, 72.87, "Pickup " + i));
+            booking.setDropoffLocation(new Location(19.10, 72.90, "Dropoff " + i));
+            booking.setRequestedCabType(Cab.CabType.SEDAN);
+            booking.setStatus(Booking.BookingStatus.COMPLETED);
+            booking = bookingRepository.save(booking);
+
+            Payment payment = new Payment();
+            payment.setBooking(booking);
+            payment.setAmount(new BigDecimal("10.00"));
+            payment.setStatus(PaymentStatus.PENDING);
+            payment.setTransactionId("TX-" + i);
+            payment.setPaymentDate(LocalDateTime.now()); // Within the grace period
+            payments.add(paymentRepository.save(payment));
+        }
+        return payments;
+    }
+
+    private void writeSettlementFile(String... lines) throws IOException {
+        Files.createDirectories(SETTLEMENT_DIR);
+        Files.writeString(SETTLEMENT_DIR.resolve("settlement-resume.csv"), "transaction_id,status,amount\n" + String.join("\n", lines) + "\n");
+    }
+
+    private ReconciliationRun awaitFinished(ReconciliationRun run) throws InterruptedException {
+        for (int attempt = 0; attempt < 200; attempt++) {
+            ReconciliationRun current = paymentReconciler.getRun(run.getId());
+            if (current.getStatus() != RunStatus.RUNNING) {
+                return current;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Reconciliation run " + run.getId() + " did not finish");
+    }
+
+    private List<Long> mismatchedPayments(ReconciliationRun run) {
+        return paymentReconciler.getMismatches(run.getId(), 0, 100).stream()
+                .map(ReconciliationMismatch::getPaymentId)
+                .toList();
+    }
+}
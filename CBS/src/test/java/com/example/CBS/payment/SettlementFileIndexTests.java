@@ -0,0 +1,109 @@
+package com.example.CBS.payment;
+
+import com.example.CBS.model.Payment.PaymentStatus;
+import com.example.CBS.payment.SettlementFileIndex.SettlementRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link SettlementFileIndex}: header handling, a last line without a newline, later lines superseding
+ * earlier ones, ids whose fingerprints collide in one probe chain, and lookups of unknown ids.
+ */
+class SettlementFileIndexTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void skipsTheHeaderLine() throws IOException {
+        SettlementFileIndex index = open("transaction_id,status,amount\nTX-1,COMPLETED,12.50\n");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.find("TX-1")).isEqualTo(new SettlementRecord("TX-1", PaymentStatus.COMPLETED, new BigDecimal("12.50")));
+        assertThat(index.find("transaction_id")).isNull();
+    }
+
+    @Test
+    void readsTheLastLineWithoutATrailingNewline() throws IOException {
+        SettlementFileIndex index = open("TX-1,COMPLETED,12.50\r\nTX-2,failed,7.00");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.find("TX-1").status()).isEqualTo(PaymentStatus.COMPLETED); // CRLF line endings too
+        assertThat(index.find("TX-2")).isEqualTo(new SettlementRecord("TX-2", PaymentStatus.FAILED, new BigDecimal("7.00")));
+    }
+
+    @Test
+    void laterLineForTheSameTransactionWins() throws IOException {
+        SettlementFileIndex index = open("TX-1,PENDING,12.50\nTX-2,COMPLETED,3.00\nTX-1,COMPLETED,12.50\n");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.find("TX-1").status()).isEqualTo(PaymentStatus.COMPLETED);
+    }
+
+    @Test
+    void idsWithTheSameFingerprintAndSlotAreToldApart() throws IOException {
+        // Two lines give the minimum table of 16 slots; the second id probes past the first one's matching fingerprint
+        String[] ids = collidingIds();
+        SettlementFileIndex index = open(ids[0] + ",COMPLETED,1.00\n" + ids[1] + ",FAILED,2.00\n");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.find(ids[0])).isEqualTo(new SettlementRecord(ids[0], PaymentStatus.COMPLETED, new BigDecimal("1.00")));
+        assertThat(index.find(ids[1])).isEqualTo(new SettlementRecord(ids[1], PaymentStatus.FAILED, new BigDecimal("2.00")));
+    }
+
+    @Test
+    void absentIdWithACollidingFingerprintIsNotFound() throws IOException {
+        String[] ids = collidingIds();
+        SettlementFileIndex index = open(ids[0] + ",COMPLETED,1.00\nOTHER,COMPLETED,3.00\n");
+
+        assertThat(index.find(ids[1])).isNull();
+    }
+
+    @Test
+    void unknownTransactionIsNotFound() throws IOException {
+        SettlementFileIndex index = open("TX-1,COMPLETED,12.50\n");
+
+        assertThat(index.find("TX-2")).isNull();
+        assertThat(index.find("TX-")).isNull(); // A prefix of a stored id
+        assertThat(index.find("TX-10")).isNull(); // A stored id as prefix
+    }
+
+    @Test
+    void emptyFileHasNoEntries() throws IOException {
+        SettlementFileIndex index = open("");
+
+        assertThat(index.size()).isZero();
+        assertThat(index.find("TX-1")).isNull();
+    }
+
+    // --- Private Helper Methods ---
+
+    private SettlementFileIndex open(String content) throws IOException {
+        Path file = dir.resolve("settlement.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return SettlementFileIndex.open(file);
+    }
+
+    // Two ids sharing the 24-bit fingerprint and the slot of a 16-slot table (the top 4 hash bits)
+    private static String[] collidingIds() {
+        Map<Long, String> byBucket = new HashMap<>();
+        for (int i = 0; ; i++) {
+            String id = "TX-" + i;
+            long hash = SettlementFileIndex.hash(id.getBytes(StandardCharsets.UTF_8));
+            String other = byBucket.putIfAbsent(SettlementFileIndex.fingerprint(hash) << 4 | hash >>> 60, id);
+            if (other != null) {
+                return new String[]{other, id};
+            }
+        }
+    }
+}
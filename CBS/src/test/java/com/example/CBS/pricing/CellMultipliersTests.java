@@ -0,0 +1,45 @@
+package com.example.CBS.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The primitive surge table behind {@link SurgePricingEngine#multiplierFor}: hits, misses and probing.
+ */
+class CellMultipliersTests {
+
+    @Test
+    void emptyTableReturnsTheDefault() {
+        assertThat(CellMultipliers.EMPTY.get(42L, 1.0)).isEqualTo(1.0);
+        assertThat(CellMultipliers.EMPTY.size()).isZero();
+    }
+
+    @Test
+    void findsEveryStoredCellAndMissesOthers() {
+        Map<Long, Double> multipliers = new HashMap<>();
+        for (long lat = 0; lat < 100; lat++) {
+            for (long lon = 0; lon < 30; lon++) {
+                multipliers.put((lat << 32) | lon, 1.1 + (lat * 30 + lon) % 20 / 10.0);
+            }
+        }
+        multipliers.put(0L, 2.0);
+        multipliers.put(-1L, 3.0); // Any long is a valid key
+
+        CellMultipliers table = new CellMultipliers(multipliers);
+
+        assertThat(table.size()).isEqualTo(multipliers.size());
+        multipliers.forEach((cell, multiplier) -> assertThat(table.get(cell, 1.0)).isEqualTo(multiplier));
+        assertThat(table.get((100L << 32) | 5, 1.0)).isEqualTo(1.0);
+        assertThat(table.get(Long.MIN_VALUE, 1.0)).isEqualTo(1.0);
+    }
+
+    @Test
+    void rejectsNonPositiveMultipliers() {
+        assertThatThrownBy(() -> new CellMultipliers(Map.of(1L, 0.0))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
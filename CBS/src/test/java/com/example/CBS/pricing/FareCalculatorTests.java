@@ -0,0 +1,115 @@
+package com.example.CBS.pricing;
+
+import com.example.CBS.geo.DriverSpatialIndex;
+import com.example.CBS.geo.FleetStateStore;
+import com.example.CBS.geo.GeoUtils;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Location;
+import com.example.CBS.payload.response.FareQuoteResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link FareCalculator} in cents against the BigDecimal formula it replaced: base fare plus rate per km,
+ * persisted at scale 2, then surge. Also the read-only quote built on it ({@link FareQuoteService}), which
+ * caches the pre-surge step per cell and must price exactly like a booking.
+ */
+class FareCalculatorTests {
+
+    // Surge is disabled on an engine that was not configured by Spring
+    private final FareCalculator fareCalculator =
+            new FareCalculator(new SurgePricingEngine(new DriverSpatialIndex(null, new FleetStateStore(16), 0.01)));
+
+    @Test
+    void zeroDistanceCostsTheBaseFare() {
+        Location here = new Location(12.97, 77.59, "here");
+
+        assertThat(fareCalculator.estimateFareCents(here, here, Cab.CabType.SEDAN)).isEqualTo(1000L);
+        assertThat(fareCalculator.estimateFare(here, here, Cab.CabType.SEDAN)).isEqualTo(new BigDecimal("10.00"));
+    }
+
+    @Test
+    void matchesTheBigDecimalFareForCityRoutes() {
+        SplittableRandom random = new SplittableRandom(11);
+        int differing = 0;
+        for (int i = 0; i < 50_000; i++) {
+            Location pickup = new Location(random.nextDouble(12.8, 13.1), random.nextDouble(77.4, 77.8), null);
+            Location dropoff = new Location(random.nextDouble(12.8, 13.1), random.nextDouble(77.4, 77.8), null);
+            Cab.CabType cabType = Cab.CabType.values()[i % Cab.CabType.values().length];
+
+            BigDecimal expected = legacyFare(pickup, dropoff, cabType);
+            BigDecimal actual = fareCalculator.estimateFare(pickup, dropoff, cabType);
+            if (actual.compareTo(expected) != 0) {
+                differing++;
+                assertThat(actual.subtract(expected).abs()).isEqualByComparingTo("0.01"); // Half-cent boundary only
+            }
+            assertThat(actual.scale()).isEqualTo(2);
+        }
+        assertThat(differing).isLessThan(25);
+    }
+
+    @Test
+    void surgeScalesTheFareAndRoundsHalfUp() {
+        assertThat(fareCalculator.applySurge(1999, 1.0)).isEqualTo(1999L);
+        assertThat(fareCalculator.applySurge(1999, 0.8)).isEqualTo(1999L); // Never a discount
+        assertThat(fareCalculator.applySurge(1999, 1.5)).isEqualTo(2999L); // 2998.5
+        assertThat(fareCalculator.applySurge(1999, 2.3)).isEqualTo(4598L); // 4597.7
+    }
+
+    @Test
+    void baseFareThenSurgeIsTheBookingEstimate() {
+        SplittableRandom random = new SplittableRandom(13);
+        for (int i = 0; i < 1_000; i++) {
+            Location pickup = new Location(random.nextDouble(12.8, 13.1), random.nextDouble(77.4, 77.8), null);
+            Location dropoff = new Location(random.nextDouble(12.8, 13.1), random.nextDouble(77.4, 77.8), null);
+            Cab.CabType cabType = Cab.CabType.values()[i % Cab.CabType.values().length];
+
+            long base = fareCalculator.baseFareCents(pickup, dropoff, cabType);
+            assertThat(fareCalculator.applySurge(base, fareCalculator.surgeMultiplier(pickup)))
+                    .isEqualTo(fareCalculator.estimateFareCents(pickup, dropoff, cabType));
+        }
+    }
+
+    @Test
+    void quoteReusesTheBaseFareWithinACell() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FareQuoteService quotes = new FareQuoteService(fareCalculator, meterRegistry, 0.001, 100, 60_000);
+        Location pickup = new Location(12.9705, 77.5905, "pickup");
+        Location dropoff = new Location(13.0305, 77.6405, "dropoff");
+
+        FareQuoteResponse first = quotes.quote(pickup, dropoff, Cab.CabType.SEDAN);
+        // The pin moved by about 30 m, still inside both 0.001-degree cells
+        FareQuoteResponse moved = quotes.quote(new Location(12.9707, 77.5907, "pickup"), dropoff, Cab.CabType.SEDAN);
+        FareQuoteResponse suv = quotes.quote(pickup, dropoff, Cab.CabType.SUV);
+
+        assertThat(first.getEstimatedFare()).isEqualTo(fareCalculator.estimateFare(pickup, dropoff, Cab.CabType.SEDAN));
+        assertThat(first.getSurgeMultiplier()).isEqualTo(1.0);
+        assertThat(moved.getEstimatedFare()).isEqualTo(first.getEstimatedFare());
+        assertThat(suv.getEstimatedFare()).isEqualTo(fareCalculator.estimateFare(pickup, dropoff, Cab.CabType.SUV));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "fare.quote").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "fare.quote").tag("result", "miss").functionCounter().count())
+                .isEqualTo(2.0);
+        assertThat(meterRegistry.get("fare.quote.latency").timer().count()).isEqualTo(3);
+    }
+
+    // --- Private Helper Methods ---
+
+    // The pre-cents estimate, rounded the way the estimated_fare column (scale 2) stored it
+    private static BigDecimal legacyFare(Location pickup, Location dropoff, Cab.CabType cabType) {
+        BigDecimal ratePerKm = switch (cabType) {
+            case SEDAN -> BigDecimal.valueOf(2.5);
+            case SUV -> BigDecimal.valueOf(3.5);
+            case LUXURY -> BigDecimal.valueOf(5.0);
+            default -> BigDecimal.valueOf(2.0);
+        };
+        BigDecimal distance = BigDecimal.valueOf(GeoUtils.distanceKm(pickup, dropoff));
+        return BigDecimal.valueOf(10.0).add(ratePerKm.multiply(distance)).setScale(2, RoundingMode.HALF_UP);
+    }
+}
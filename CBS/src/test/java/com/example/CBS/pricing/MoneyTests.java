@@ -0,0 +1,83 @@
+package com.example.CBS.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Rounding in {@link Money}: HALF_UP to whole cents everywhere, and per-km amounts that agree with the
+ * BigDecimal arithmetic they replaced except within a micro-km of a half-cent boundary. Amounts leave the
+ * fare engine (bookings and quotes alike) through {@link Money#toDecimal}, so that boundary must be lossless.
+ */
+class MoneyTests {
+
+    @Test
+    void convertsBetweenCentsAndDecimals() {
+        assertThat(Money.cents(12, 34)).isEqualTo(1234L);
+        assertThat(Money.toDecimal(1234L)).isEqualByComparingTo("12.34");
+        assertThat(Money.toDecimal(1234L).scale()).isEqualTo(Money.SCALE);
+        assertThat(Money.fromDecimal(new BigDecimal("12.345"))).isEqualTo(1235L);
+        assertThat(Money.fromDecimal(new BigDecimal("12.344"))).isEqualTo(1234L);
+        assertThat(Money.fromDecimal(new BigDecimal("-12.345"))).isEqualTo(-1235L);
+        assertThatThrownBy(() -> Money.fromDecimal(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void decimalBoundaryRoundTripsEveryCentAmount() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = random.nextLong(-99_999_999L, 100_000_000L); // The range of a precision 10, scale 2 column
+            BigDecimal decimal = Money.toDecimal(cents);
+
+            assertThat(Money.fromDecimal(decimal)).isEqualTo(cents);
+            assertThat(decimal.setScale(Money.SCALE, RoundingMode.HALF_UP)).isEqualTo(decimal); // Persisting changes nothing
+        }
+        assertThatThrownBy(() -> Money.cents(Long.MAX_VALUE / 100, 99)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void perKmRoundsHalfUpToACent() {
+        assertThat(Money.perKm(250, 10.0)).isEqualTo(2500L);
+        assertThat(Money.perKm(250, 0.002)).isEqualTo(1L); // 0.5 cent
+        assertThat(Money.perKm(250, 0.001)).isEqualTo(0L); // 0.25 cent
+        assertThat(Money.perKm(350, 1.234567)).isEqualTo(432L); // 432.09845 cents
+    }
+
+    @Test
+    void perKmMatchesTheBigDecimalResultAwayFromHalfCentBoundaries() {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] rates = {200, 250, 350, 500};
+        int differing = 0;
+        for (int i = 0; i < 200_000; i++) {
+            long rate = rates[i & 3];
+            double distanceKm = random.nextDouble(0, 60);
+            // What the BigDecimal fare produced once persisted at scale 2
+            BigDecimal exactCents = BigDecimal.valueOf(rate).multiply(BigDecimal.valueOf(distanceKm));
+            long expected = exactCents.setScale(0, RoundingMode.HALF_UP).longValueExact();
+
+            long actual = Money.perKm(rate, distanceKm);
+            if (actual != expected) {
+                differing++;
+                // Fixing the distance to a micro-km moves the amount by at most rate * 0.5e-6 cents
+                double fraction = exactCents.remainder(BigDecimal.ONE).doubleValue();
+                assertThat(Math.abs(actual - expected)).isEqualTo(1L);
+                assertThat(Math.abs(fraction - 0.5)).isLessThanOrEqualTo(rate * 0.5e-6);
+            }
+        }
+        assertThat(differing).isLessThan(100); // ~1 in 2000 at most, and only on a boundary
+    }
+
+    @Test
+    void multiplyUsesBasisPointsAndRoundsHalfUp() {
+        assertThat(Money.multiply(1000, 1.5)).isEqualTo(1500L);
+        assertThat(Money.multiply(999, 1.25)).isEqualTo(1249L); // 1248.75
+        assertThat(Money.multiply(-999, 1.25)).isEqualTo(-1249L); // Half away from zero, like HALF_UP
+        assertThat(Money.multiply(1002, 1.1)).isEqualTo(1102L); // 1102.2; 1.1 is not exact as a double
+        assertThat(Money.multiply(10_000, 1.23456)).isEqualTo(12_346L); // Multiplier taken to 1.2346
+    }
+}
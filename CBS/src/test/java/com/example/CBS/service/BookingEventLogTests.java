@@ -0,0 +1,97 @@
+package com.example.CBS.service;
+
+import com.example.CBS.model.BookingEvent;
+import com.example.CBS.model.BookingEvent.EventType;
+import com.example.CBS.repository.BookingEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link BookingEventLog#append}: sequence numbers follow the log, and of two transitions that read the same
+ * latest event only the first to commit is kept.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:projection;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        // Projection and payment delivery run only when the tests call them
+        "app.booking-events.projection-interval-ms=3600000",
+        "app.payments.outbox.poll-interval-ms=3600000"
+})
+@ActiveProfiles("h2")
+class BookingEventLogTests {
+
+    // Events reference bookings by plain id, so the log can be exercised without booking rows
+    private static final AtomicLong BOOKING_IDS = new AtomicLong(1_000_000);
+
+    @Autowired
+    private BookingEventLog bookingEventLog;
+    @Autowired
+    private BookingEventRepository bookingEventRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void appendNumbersEventsPerBooking() {
+        Long bookingId = BOOKING_IDS.incrementAndGet();
+
+        assertThat(append(bookingId, EventType.REQUESTED).getSequenceNumber()).isEqualTo(1);
+        assertThat(append(bookingId, EventType.ACCEPTED).getSequenceNumber()).isEqualTo(2);
+        assertThat(bookingEventLog.latest(bookingId).orElseThrow().getType()).isEqualTo(EventType.ACCEPTED);
+    }
+
+    @Test
+    void concurrentAppendIsRejectedByTheUniqueKey() throws Exception {
+        Long bookingId = BOOKING_IDS.incrementAndGet();
+        append(bookingId, EventType.ACCEPTED);
+        CountDownLatch firstInserted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        // The first transition inserts sequence 2 and holds its transaction open
+        CompletableFuture<BookingEvent> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            BookingEvent event = bookingEventLog.append(bookingId, EventType.ARRIVED, 7L, null);
+            firstInserted.countDown();
+            await(releaseFirst);
+            return event;
+        }));
+        assertThat(firstInserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // The second still reads sequence 1 as the latest, so it also tries 2 and blocks on the first one's key
+        CompletableFuture<BookingEvent> second = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status ->
+                bookingEventLog.append(bookingId, EventType.CANCELLED, 8L, null)));
+        TimeUnit.MILLISECONDS.sleep(500);
+        releaseFirst.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS).getSequenceNumber()).isEqualTo(2);
+        assertThatThrownBy(() -> second.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("was changed concurrently");
+        assertThat(bookingEventRepository.findByBookingIdOrderBySequenceNumber(bookingId))
+                .extracting(BookingEvent::getType)
+                .containsExactly(EventType.ACCEPTED, EventType.ARRIVED);
+    }
+
+    // --- Private Helper Methods ---
+
+    private BookingEvent append(Long bookingId, EventType type) {
+        return transactionTemplate.execute(status -> bookingEventLog.append(bookingId, type, 7L, null));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
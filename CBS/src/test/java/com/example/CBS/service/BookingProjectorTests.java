@@ -0,0 +1,156 @@
+package com.example.CBS.service;
+
+import com.example.CBS.model.Booking;
+import com.example.CBS.model.Booking.BookingStatus;
+import com.example.CBS.model.BookingEvent;
+import com.example.CBS.model.BookingEvent.EventType;
+import com.example.CBS.model.Cab;
+import com.example.CBS.model.Driver;
+import com.example.CBS.model.Location;
+import com.example.CBS.model.PaymentOutboxEntry;
+import com.example.CBS.model.Rider;
+import com.example.CBS.repository.BookingEventRepository;
+import com.example.CBS.repository.BookingRepository;
+import com.example.CBS.repository.DriverRepository;
+import com.example.CBS.repository.PaymentOutboxRepository;
+import com.example.CBS.repository.RiderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link BookingProjector}: events reach the bookings row strictly in sequence order, an event whose
+ * predecessor is missing waits for it, and completing a ride queues its payment and frees the driver
+ * without touching the columns the dispatch engine owns.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:projection;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        // Projection and payment delivery run only when the tests call them
+        "app.booking-events.projection-interval-ms=3600000",
+        "app.payments.outbox.poll-interval-ms=3600000"
+})
+@ActiveProfiles("h2")
+class BookingProjectorTests {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final LocalDateTime PICKED_UP = LocalDateTime.of(2026, 3, 1, 9, 30);
+    private static final LocalDateTime DROPPED_OFF = LocalDateTime.of(2026, 3, 1, 9, 55);
+
+    @Autowired
+    private BookingProjector bookingProjector;
+    @Autowired
+    private BookingEventRepository bookingEventRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private RiderRepository riderRepository;
+    @Autowired
+    private DriverRepository driverRepository;
+    @Autowired
+    private PaymentOutboxRepository paymentOutboxRepository;
+
+    private Driver driver;
+    private Booking booking;
+
+    @BeforeEach
+    void setUp() {
+        long n = SEQUENCE.incrementAndGet();
+        Rider rider = riderRepository.save(new Rider("projector-rider" + n, "pw", "projector-rider" + n + "@example.com", "Rita", "Rider"));
+        driver = driverRepository.save(new Driver("projector-driver" + n, "pw", "projector-driver" + n + "@example.com", "Dan", "Driver", "DL-P" + n));
+
+        booking = new Booking();
+        booking.setRider(rider);
+        booking.setDriver(driver);
+        booking.setPickupLocation(new Location(19.07, 72.87, "Pickup"));
+        booking.setDropoffLocation(new Location(19.10, 72.90, "Dropoff"));
+        booking.setRequestedCabType(Cab.CabType.SEDAN);
+        booking.setStatus(BookingStatus.ACCEPTED); // Written by acceptOffer; the events below carry the rest
+        booking.setEstimatedFare(new BigDecimal("20.00"));
+        booking = bookingRepository.save(booking);
+    }
+
+    @Test
+    void appliesEventsInSequenceOrder() {
+        append(1, EventType.REQUESTED, null);
+        append(2, EventType.ACCEPTED, null);
+        append(3, EventType.ARRIVED, null);
+        append(4, EventType.STARTED, null);
+
+        bookingProjector.project();
+
+        Booking projected = reload();
+        assertThat(projected.getStatus()).isEqualTo(BookingStatus.STARTED);
+        assertThat(projected.getStartTime()).isEqualTo(PICKED_UP);
+        assertThat(projected.getProjectedSequence()).isEqualTo(4);
+        assertThat(projected.getDriver().getId()).isEqualTo(driver.getId()); // Only the event's columns are written
+        assertThat(bookingEventRepository.findByBookingIdOrderBySequenceNumber(booking.getId()))
+                .allMatch(BookingEvent::getProjected);
+    }
+
+    @Test
+    void eventWaitsForItsPredecessor() {
+        append(1, EventType.REQUESTED, null);
+        append(2, EventType.ACCEPTED, null);
+        append(4, EventType.STARTED, null); // Sequence 3 has not committed yet
+
+        bookingProjector.project();
+
+        Booking waiting = reload();
+        assertThat(waiting.getStatus()).isEqualTo(BookingStatus.ACCEPTED);
+        assertThat(waiting.getProjectedSequence()).isEqualTo(2);
+        assertThat(bookingEventRepository.findByBookingIdOrderBySequenceNumber(booking.getId()))
+                .filteredOn(event -> !event.getProjected())
+                .extracting(BookingEvent::getSequenceNumber)
+                .containsExactly(4);
+
+        append(3, EventType.ARRIVED, null);
+        bookingProjector.project();
+
+        Booking caughtUp = reload();
+        assertThat(caughtUp.getStatus()).isEqualTo(BookingStatus.STARTED);
+        assertThat(caughtUp.getProjectedSequence()).isEqualTo(4);
+    }
+
+    @Test
+    void completionQueuesThePaymentAndReleasesTheDriver() {
+        append(1, EventType.REQUESTED, null);
+        append(2, EventType.ACCEPTED, null);
+        append(3, EventType.STARTED, null);
+        append(4, EventType.COMPLETED, new BigDecimal("23.40"));
+
+        bookingProjector.project();
+
+        Booking completed = reload();
+        assertThat(completed.getStatus()).isEqualTo(BookingStatus.COMPLETED);
+        assertThat(completed.getEndTime()).isEqualTo(DROPPED_OFF);
+        assertThat(completed.getActualFare()).isEqualByComparingTo("23.40");
+        List<PaymentOutboxEntry> outbox = paymentOutboxRepository.findAll().stream()
+                .filter(entry -> entry.getBookingId().equals(booking.getId()))
+                .toList();
+        assertThat(outbox).singleElement().satisfies(entry -> {
+            assertThat(entry.getAmount()).isEqualByComparingTo("23.40");
+            assertThat(entry.getStatus()).isEqualTo(PaymentOutboxEntry.OutboxStatus.PENDING);
+        });
+        assertThat(driverRepository.findById(driver.getId()).orElseThrow().getIsAvailable()).isTrue();
+    }
+
+    // --- Private Helper Methods ---
+
+    private void append(int sequence, EventType type, BigDecimal amount) {
+        LocalDateTime occurredAt = type == EventType.COMPLETED ? DROPPED_OFF : PICKED_UP;
+        bookingEventRepository.save(new BookingEvent(null, booking.getId(), sequence, type, driver.getId(), amount, occurredAt, false));
+    }
+
+    private Booking reload() {
+        return bookingRepository.findDetailedById(booking.getId()).orElseThrow();
+    }
+}
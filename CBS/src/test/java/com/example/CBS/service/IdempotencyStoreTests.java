@@ -0,0 +1,96 @@
+package com.example.CBS.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Duplicate collapsing in {@link IdempotencyStore}: one first request per key, retries after a failure,
+ * and no blocking between unrelated keys while a first request is still running.
+ */
+class IdempotencyStoreTests {
+
+    private final IdempotencyStore store = new IdempotencyStore(null, 1000, 60_000);
+
+    @Test
+    void concurrentCallsWithOneKeyRunTheFirstRequestOnce() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = pool.submit(() -> store.resolve("booking", 1L, "key-1", () -> {
+                firstStarted.countDown();
+                await(release);
+                return 100L + created.incrementAndGet();
+            }));
+            assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Long> duplicate = pool.submit(() -> store.resolve("booking", 1L, "key-1",
+                    () -> 200L + created.incrementAndGet()));
+
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(101L);
+            assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo(101L);
+            assertThat(created).hasValue(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedFirstRequestCanBeRetried() {
+        assertThatThrownBy(() -> store.resolve("booking", 1L, "key-2", () -> {
+            throw new IllegalStateException("database down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(store.resolve("booking", 1L, "key-2", () -> 7L)).isEqualTo(7L);
+        assertThat(store.resolve("booking", 1L, "key-2", () -> 8L)).isEqualTo(7L);
+    }
+
+    @Test
+    void slowFirstRequestDoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> slow = pool.submit(() -> store.resolve("booking", 1L, "slow", () -> {
+                firstStarted.countDown();
+                await(release);
+                return 1L;
+            }));
+            assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Many keys, so some share a hash bin with the slow one; none may wait for it
+            for (int i = 0; i < 1000; i++) {
+                long id = i;
+                assertThat(store.resolve("booking", 2L, "other-" + i, () -> id)).isEqualTo(id);
+            }
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo(1L);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsOverlongKeys() {
+        assertThatThrownBy(() -> store.resolve("booking", 1L, "x".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1), () -> 1L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}